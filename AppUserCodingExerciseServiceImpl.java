@@ -1,62 +1,80 @@
 package com.trainingmug.practiceplatform.user.service.impl.learningunit;
 
-import com.trainingmug.practiceplatform.admin.entity.learningunit.CodeCaseEntity;
 import com.trainingmug.practiceplatform.admin.entity.learningunit.CodingExerciseEntity;
 import com.trainingmug.practiceplatform.admin.entity.learningunit.LanguageEntity;
 import com.trainingmug.practiceplatform.admin.exception.learningunit.CodingExerciseNotFoundException;
 import com.trainingmug.practiceplatform.admin.exception.learningunit.CourseNotFoundException;
-import com.trainingmug.practiceplatform.admin.exception.learningunit.LanguageNotFoundException;
 import com.trainingmug.practiceplatform.admin.exception.learningunit.quiz.MaxAttemptsExceededException;
+import com.trainingmug.practiceplatform.admin.repository.learningunit.CodingExerciseQueryRepository;
 import com.trainingmug.practiceplatform.admin.repository.learningunit.CodingExerciseRepository;
 import com.trainingmug.practiceplatform.admin.repository.learningunit.LanguageRepository;
 import com.trainingmug.practiceplatform.enums.ExecutionType;
 import com.trainingmug.practiceplatform.enums.LearningProgressStatus;
 import com.trainingmug.practiceplatform.enums.LearningUnitStatus;
-import com.trainingmug.practiceplatform.enums.LearningUnitType;
 import com.trainingmug.practiceplatform.user.dto.learningunit.codingexercise.*;
 import com.trainingmug.practiceplatform.user.entity.attempt.codingexercise.CodingExerciseAttemptEntity;
 import com.trainingmug.practiceplatform.user.entity.attempt.codingexercise.CodingExerciseAttemptHistoryEntity;
-import com.trainingmug.practiceplatform.user.entity.enroll.CourseEnrollEntity;
 import com.trainingmug.practiceplatform.user.entity.user.AppUserEntity;
 import com.trainingmug.practiceplatform.user.exception.AttemptNotFoundException;
+import com.trainingmug.practiceplatform.user.exception.SubmissionInProgressException;
+import com.trainingmug.practiceplatform.user.exception.SubmissionJobNotFoundException;
+import com.trainingmug.practiceplatform.user.exception.SubmissionQueueFullException;
 import com.trainingmug.practiceplatform.user.exception.user.UserNotFoundException;
 import com.trainingmug.practiceplatform.user.model.attempt.Code;
 import com.trainingmug.practiceplatform.user.repository.AppUserRepository;
+import com.trainingmug.practiceplatform.user.repository.attempt.codingexercise.CodingExerciseAttemptHistoryQueryRepository;
 import com.trainingmug.practiceplatform.user.repository.attempt.codingexercise.CodingExerciseAttemptHistoryRepository;
 import com.trainingmug.practiceplatform.user.repository.attempt.codingexercise.CodingExerciseAttemptRepository;
+import com.trainingmug.practiceplatform.user.repository.enroll.CourseEnrollQueryRepository;
 import com.trainingmug.practiceplatform.user.repository.enroll.CourseEnrollRepository;
-import com.trainingmug.practiceplatform.user.service.dashboard.CourseStatisticsService;
-import com.trainingmug.practiceplatform.user.service.dashboard.DailyStreakService;
 import com.trainingmug.practiceplatform.user.service.impl.appuser.AppUserServiceImpl;
 import com.trainingmug.practiceplatform.user.service.learningunit.AppUserCodingExerciseService;
-import com.trainingmug.practiceplatform.user.util.coderunner.CodeRunService;
+import com.trainingmug.practiceplatform.user.util.coderunner.*;
 import com.trainingmug.practiceplatform.user.util.modelmapper.AppUserLearningUnitModelMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.lang.reflect.UndeclaredThrowableException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class AppUserCodingExerciseServiceImpl implements AppUserCodingExerciseService {
     private final CodingExerciseRepository codingExerciseRepository;
+    private final LanguageRepository languageRepository;
+    private final CodingExerciseQueryRepository codingExerciseQueryRepository;
     private final AppUserLearningUnitModelMapper learningUnitModelMapper;
     private final AppUserServiceImpl appUserService;
     private final AppUserRepository appUserRepository;
-    private final LanguageRepository languageRepository;
     private final CodingExerciseAttemptHistoryRepository codingExerciseAttemptHistoryRepository;
+    private final CodingExerciseAttemptHistoryQueryRepository codingExerciseAttemptHistoryQueryRepository;
     private final CodingExerciseAttemptRepository codingExerciseAttemptRepository;
     private final AppUserLearningUnitModelMapper appUserLearningUnitModelMapper;
     private final CourseEnrollRepository courseEnrollRepository;
-    private final DailyStreakService dailyStreakService;
-    private final CourseStatisticsService courseStatisticsService;
+    private final CourseEnrollQueryRepository courseEnrollQueryRepository;
+    private final CodingExerciseCache codingExerciseCache;
+    private final SubmissionJudge submissionJudge;
+    private final SubmissionQueue submissionQueue;
+    private final JudgeMetrics judgeMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExecutionLimitProperties executionLimitProperties;
+    // "userId:codingExerciseId" of graded submissions queued or running on this node
+    private final Set<String> gradedInFlight = ConcurrentHashMap.newKeySet();
 
     @Override
     public CodingExerciseAppUserDTO getCodingExerciseById(Long id) throws CodingExerciseNotFoundException {
@@ -74,83 +92,183 @@ public class AppUserCodingExerciseServiceImpl implements AppUserCodingExerciseSe
 
         AppUserEntity appUserEntity = appUserService.getAuthenticatedAppUser();
 
-        // Get all enrolled courses
-        List<CourseEnrollEntity> courseEnrollEntities = courseEnrollRepository.findByUserAndProgressStatusIn(
-                appUserEntity, List.of(LearningProgressStatus.IN_PROGRESS, LearningProgressStatus.NOT_STARTED)
+        // Check the one enrollment that matters instead of loading all of them
+        boolean isEnrolled = courseId != null && courseEnrollQueryRepository.existsByUserAndCourseAndProgressStatusIn(
+                appUserEntity.getId(), courseId, List.of(LearningProgressStatus.IN_PROGRESS, LearningProgressStatus.NOT_STARTED)
         );
-        boolean isEnrolled = courseId != null && courseEnrollEntities.stream()
-                .anyMatch(courseEnrollEntity -> courseEnrollEntity.getCourse().getId().equals(courseId));
 
         log.info("IsEnrolled: {}", isEnrolled);
         if (courseId == null || !isEnrolled) {
             throw new CourseNotFoundException("Course not found with id: " + courseId);
         }
 
-        codingExerciseEntities = codingExerciseRepository.findAllByCourse_IdAndLearningUnitStatusIn(
+        // Attempted exercises are excluded by the query, so the page and its total stay consistent
+        codingExerciseEntities = codingExerciseQueryRepository.findAllUnattemptedByCourse(
+                appUserEntity.getId(),
                 courseId,
                 List.of(LearningUnitStatus.ACTIVE, LearningUnitStatus.PENDING_UPDATION_APPROVAL),
                 pageable);
 
-        log.info("Coding Exercise found count: {}", codingExerciseEntities.getTotalElements());
+        log.info("unattemptedCodingExercise count: {}", codingExerciseEntities.getTotalElements());
 
-        // Fetch attempted codingExercise IDs for the user
-        List<Long> attemptedCodingExerciseIds = codingExerciseAttemptHistoryRepository.findAllByAttemptedBy_Id(appUserEntity.getId()).stream()
-                .map(history -> history.getCodingExercise().getId())
-                .toList();
-        log.info("attemptedCodingExerciseIds count: {}", attemptedCodingExerciseIds.size());
-
-        // Filter out unattempted codingExercise
-        List<CodingExerciseEntity> unattemptedCodingExercise = codingExerciseEntities.stream()
-                .filter(codingExercise -> !attemptedCodingExerciseIds.contains(codingExercise.getId()))
-                .toList();
-        log.info("unattemptedCodingExercise count: {}", unattemptedCodingExercise.size());
+        return codingExerciseEntities.map(learningUnitModelMapper::toDTOAppUser);
+    }
 
-        // Ensure pagination metadata is retained
-        Page<CodingExerciseEntity> unattemptedCodingExercisePage = new PageImpl<>(unattemptedCodingExercise, pageable, codingExerciseEntities.getTotalElements());
+    @Override
+    public CodeExecutionStatus executeUserCode(Long codingExerciseId, Code code) throws Exception {
+        // Waits in the same queue as background submissions, so lanes and per-user caps apply here too
+        return enqueue(codingExerciseId, code).await();
+    }
 
-        return unattemptedCodingExercisePage.map(learningUnitModelMapper::toDTOAppUser);
+    @Override
+    public SubmissionJobDTO submitUserCode(Long codingExerciseId, Code code) throws Exception {
+        return enqueue(codingExerciseId, code).toDTO();
+    }
 
+    private SubmissionJob enqueue(Long codingExerciseId, Code code) throws Exception {
+        long acceptedAt = System.nanoTime();
+        PreparedSubmission submission = prepareSubmission(codingExerciseId, code);
+        SubmissionLane lane = code.getExecutionType() == ExecutionType.SUBMIT_CASES ? SubmissionLane.GRADED : SubmissionLane.PRACTICE;
+        // A last attempt is the user's final chance at the exercise, don't keep them waiting behind others
+        boolean boosted = lane == SubmissionLane.GRADED && submission.isLastAttempt();
+        String gradedKey = claimGradedSlot(submission);
+        SubmissionJob submissionJob;
+        try {
+            submissionJob = submissionQueue.submit(submission.getAppUserEntity().getId(), lane, boosted, caseListener -> {
+                try {
+                    return judgeAndRecord(submission, caseListener, acceptedAt);
+                } finally {
+                    releaseGradedSlot(gradedKey);
+                }
+            });
+        } catch (SubmissionQueueFullException e) {
+            releaseGradedSlot(gradedKey);
+            throw e;
+        }
+        log.info("Queued submission job {} for coding exercise {}", submissionJob.getId(), codingExerciseId);
+        return submissionJob;
+    }
 
+    @Override
+    public SubmissionJobDTO getSubmissionJob(String jobId) throws SubmissionJobNotFoundException {
+        return findOwnSubmissionJob(jobId).toDTO();
     }
 
     @Override
-    public CodeExecutionStatus executeUserCode(Long codingExerciseId, Code code) throws Exception {
+    public SseEmitter streamSubmissionJob(String jobId) throws SubmissionJobNotFoundException {
+        return submissionQueue.stream(findOwnSubmissionJob(jobId));
+    }
+
+    private SubmissionJob findOwnSubmissionJob(String jobId) throws SubmissionJobNotFoundException {
         AppUserEntity appUserEntity = appUserService.getAuthenticatedAppUser();
-        CodingExerciseAttemptEntity savedCodingExerciseAttemptEntity;
-        CodingExerciseEntity codingExerciseEntity = codingExerciseRepository.findById(codingExerciseId).orElseThrow(
-                () -> new CodingExerciseNotFoundException("Coding exercise not found with id: " + codingExerciseId)
-        );
-        log.info("found Coding exercise : {}", codingExerciseEntity.getName());
+        return submissionQueue.find(jobId, appUserEntity.getId())
+                .orElseThrow(() -> new SubmissionJobNotFoundException("Submission job not found with id: " + jobId));
+    }
+
+    /**
+     * Lets one graded submission per user and exercise be queued or running at a time. Every graded
+     * submission that passed the attempt check together would otherwise count as the same attempt.
+     */
+    private String claimGradedSlot(PreparedSubmission submission) throws SubmissionInProgressException {
+        if (submission.getCode().getExecutionType() != ExecutionType.SUBMIT_CASES) {
+            return null;
+        }
+        String gradedKey = submission.getAppUserEntity().getId() + ":" + submission.getCodingExercise().getId();
+        if (!gradedInFlight.add(gradedKey)) {
+            throw new SubmissionInProgressException("A submission for this coding exercise is already being judged, please wait for its result");
+        }
+        return gradedKey;
+    }
+
+    private void releaseGradedSlot(String gradedKey) {
+        if (gradedKey != null) {
+            gradedInFlight.remove(gradedKey);
+        }
+    }
+
+    // Everything that needs the request's user and persistence context happens here, on the calling thread
+    private PreparedSubmission prepareSubmission(Long codingExerciseId, Code code) throws Exception {
+        AppUserEntity appUserEntity = appUserService.getAuthenticatedAppUser();
+        // Exercise and language come from memory under load, admin edits evict them
+        CodingExerciseSnapshot codingExercise = codingExerciseCache.getCodingExercise(codingExerciseId);
+        log.info("found Coding exercise : {}", codingExercise.getName());
         CodingExerciseAttemptHistoryEntity codingExerciseAttemptHistoryEntity = codingExerciseAttemptHistoryRepository.findByCodingExercise_IdAndAttemptedBy_Id(codingExerciseId, appUserEntity.getId()).orElse(null);
-        if (codingExerciseAttemptHistoryEntity != null && codingExerciseAttemptHistoryEntity.getAttemptCount() >= codingExerciseEntity.getMaxAttempts()) {
+        if (codingExerciseAttemptHistoryEntity != null && codingExerciseAttemptHistoryEntity.getAttemptCount() >= codingExercise.getMaxAttempts()) {
             throw new MaxAttemptsExceededException("Maximum attempts exceeded for quiz : " + codingExerciseId);
         }
         log.info("Maximum attempts not exceeded for coding exercise");
-        Boolean isLastAttempt = codingExerciseAttemptHistoryEntity != null && codingExerciseAttemptHistoryEntity.getAttemptCount() + 1 == codingExerciseEntity.getMaxAttempts();
+        Boolean isLastAttempt = codingExerciseAttemptHistoryEntity != null && codingExerciseAttemptHistoryEntity.getAttemptCount() + 1 == codingExercise.getMaxAttempts();
 
-        LanguageEntity language = languageRepository.findById(code.getLanguage()).orElseThrow(() -> new LanguageNotFoundException(code.getLanguage()));
+        LanguageSnapshot language = codingExerciseCache.getLanguage(code.getLanguage());
         log.info("language : {}", language.getName());
-        long compileTimeStart = System.currentTimeMillis();
-        String errMessage = "";
+        List<CaseSnapshot> codeCases = code.getExecutionType() == ExecutionType.TEST_CASES ? List.copyOf(codingExercise.getRunCases())
+                : code.getExecutionType() == ExecutionType.SUBMIT_CASES ? List.copyOf(codingExercise.getSubmitCases())
+                : List.of();
+        // Graded runs of fail-fast exercises stop as soon as the pass percentage is out of reach
+        int requiredPasses = code.getExecutionType() == ExecutionType.SUBMIT_CASES && executionLimitProperties.isFailFast(codingExerciseId)
+                ? (codingExercise.getMinimumPercentageToPass() * codeCases.size() + 99) / 100
+                : 0;
+        return new PreparedSubmission(appUserEntity, codingExercise, codingExerciseAttemptHistoryEntity, language, code, codeCases,
+                isLastAttempt, executionLimitProperties.forExercise(codingExerciseId), requiredPasses,
+                executionLimitProperties.comparatorFor(codingExerciseId));
+    }
 
-        if (language.getName().equalsIgnoreCase("java")) {
-            errMessage = CodeRunService.compileJavaCode(code.getCode());
+    private CodeExecutionStatus judgeAndRecord(PreparedSubmission submission, Consumer<CodeCaseReportDTO> caseListener, long acceptedAt) throws Exception {
+        boolean failed = true;
+        try {
+            CodeExecutionStatus codeExecutionStatus = recordResultInTransaction(submission, submissionJudge.judge(submission.toJudgeRequest(caseListener)));
+            failed = false;
+            return codeExecutionStatus;
+        } finally {
+            judgeMetrics.recordSubmission(submission.getLanguage().getName().toLowerCase(), submission.getCodingExercise().getId(),
+                    submission.getCode().getExecutionType().name(), failed, System.nanoTime() - acceptedAt);
+        }
+    }
 
-        } else if(language.getName().equalsIgnoreCase("python")) {
-            String result = CodeRunService.runPythonCode(code.getCode(), codingExerciseEntity.getRunCases().get(0).getInput());
-            if (result.startsWith("ERROR: ")) {
-                errMessage = result.substring(7);
-            } else {
-                errMessage = null;
+    private CodeExecutionStatus recordResultInTransaction(PreparedSubmission submission, JudgeResult judgeResult) throws Exception {
+        long start = System.nanoTime();
+        try {
+            if (submission.getCode().getExecutionType() != ExecutionType.SUBMIT_CASES) {
+                return recordResult(submission, judgeResult);
+            }
+            // Graded results are written as one unit, streak and statistics follow after the commit
+            try {
+                return transactionTemplate.execute(status -> {
+                    try {
+                        return recordResult(submission, judgeResult);
+                    } catch (Exception e) {
+                        // Unchecked so the template rolls back, unwrapped again below
+                        throw new UndeclaredThrowableException(e);
+                    }
+                });
+            } catch (UndeclaredThrowableException e) {
+                throw (Exception) e.getUndeclaredThrowable();
             }
-        }else if(language.getName().equalsIgnoreCase("cpp")){
-            errMessage=CodeRunService.compileCppCode(code.getCode());
-        }else {
-            errMessage= CodeRunService.compileCCode(code.getCode());
+        } finally {
+            judgeMetrics.recordPersistence(submission.getCode().getExecutionType().name(), System.nanoTime() - start);
+        }
+    }
+
+    private CodeExecutionStatus recordResult(PreparedSubmission submission, JudgeResult judgeResult) throws MaxAttemptsExceededException {
+        AppUserEntity appUserEntity = submission.getAppUserEntity();
+        CodingExerciseSnapshot codingExercise = submission.getCodingExercise();
+        // Only foreign keys for the rows written below, every value is read from the snapshots
+        CodingExerciseEntity codingExerciseEntity = codingExerciseRepository.getReferenceById(codingExercise.getId());
+        LanguageEntity language = languageRepository.getReferenceById(submission.getLanguage().getId());
+        Code code = submission.getCode();
+        // The history read when the submission was accepted may be stale by now, graded results re-read it locked
+        CodingExerciseAttemptHistoryEntity codingExerciseAttemptHistoryEntity = code.getExecutionType() == ExecutionType.SUBMIT_CASES
+                ? codingExerciseAttemptHistoryQueryRepository.findForUpdate(codingExercise.getId(), appUserEntity.getId()).orElse(null)
+                : submission.getCodingExerciseAttemptHistoryEntity();
+        if (code.getExecutionType() == ExecutionType.SUBMIT_CASES && codingExerciseAttemptHistoryEntity != null
+                && codingExerciseAttemptHistoryEntity.getAttemptCount() >= codingExercise.getMaxAttempts()) {
+            throw new MaxAttemptsExceededException("Maximum attempts exceeded for quiz : " + codingExercise.getId());
         }
-        long TotalCompileTime = System.currentTimeMillis() - compileTimeStart;
+        CodingExerciseAttemptEntity savedCodingExerciseAttemptEntity;
+
+        long TotalCompileTime = judgeResult.getCompileTime();
+        String errMessage = judgeResult.getCompileError();
         int attemptCount = codingExerciseAttemptHistoryEntity == null ? 1 : codingExerciseAttemptHistoryEntity.getAttemptCount() + 1;
-        log.info("Error massage : {}", errMessage);
         if (errMessage != null) {
             if (code.getExecutionType() == ExecutionType.SUBMIT_CASES) {
                 if (codingExerciseAttemptHistoryEntity == null) {
@@ -159,7 +277,7 @@ public class AppUserCodingExerciseServiceImpl implements AppUserCodingExerciseSe
                             Timestamp.from(Instant.now()),
                             attemptCount,
                             false,
-                            codingExerciseEntity.getTotalSubmitCases(),
+                            codingExercise.getTotalSubmitCases(),
                             0,
                             code.getDuration(),
                             TotalCompileTime,
@@ -179,7 +297,7 @@ public class AppUserCodingExerciseServiceImpl implements AppUserCodingExerciseSe
                         0L,
                         Timestamp.from(Instant.now()),
                         false,
-                        codingExerciseEntity.getTotalSubmitCases(),
+                        codingExercise.getTotalSubmitCases(),
                         0,
                         code.getDuration(),
                         TotalCompileTime,
@@ -189,133 +307,62 @@ public class AppUserCodingExerciseServiceImpl implements AppUserCodingExerciseSe
                         null,
                         codingExerciseEntity,
                         language,
-                        codingExerciseEntity.getMarks(),
+                        codingExercise.getMarks(),
                         0,
                         0.0
                 );
                 savedCodingExerciseAttemptEntity = codingExerciseAttemptRepository.save(codingExerciseAttemptEntity);
 
-                //Update daily Streak**
-                dailyStreakService.updateCodingExerciseStreak(appUserEntity.getId(), savedCodingExerciseAttemptEntity, code.getDuration());
+                //Update daily Streak** once committed
+                eventPublisher.publishEvent(new CodingExerciseAttemptRecordedEvent(
+                        appUserEntity.getId(), codingExercise, savedCodingExerciseAttemptEntity, code.getDuration(), false, false));
 
 
             }
-            CodeRunService.cleanupGeneratedFiles();
             return new CodeExecutionStatus(
                     0,
                     0,
                     TotalCompileTime,
                     false,
-                    codingExerciseEntity.getMaxAttempts() - attemptCount,
-                    codingExerciseEntity.getMaxAttempts(),
+                    codingExercise.getMaxAttempts() - attemptCount,
+                    codingExercise.getMaxAttempts(),
                     errMessage,
                     null
             );
         }
-        log.info("No error");
-        List<CodeCaseReportDTO> codeCaseReportDTOS = new ArrayList<>();
+        List<CodeCaseReportDTO> codeCaseReportDTOS = judgeResult.getCodeCaseReports();
+        int casePassed = judgeResult.getCasePassed();
+        long totalRunTime = judgeResult.getRunTime();
         if (code.getExecutionType() == ExecutionType.TEST_CASES) {
-            int casePassed = 0;
-            long runTimeStart = System.currentTimeMillis();
-            for (CodeCaseEntity codeCaseEntity : codingExerciseEntity.getRunCases()) {
-                String userCodeOutput = "";
-                if (language.getName().equalsIgnoreCase("java")) {
-                    userCodeOutput = CodeRunService.runJavaClass("Solution", codeCaseEntity.getInput());
-                } else if(language.getName().equalsIgnoreCase("python")) {
-                    userCodeOutput = CodeRunService.runPythonCode(code.getCode(), codeCaseEntity.getInput());
-                } else if (language.getName().equalsIgnoreCase("cpp")) {
-                    userCodeOutput=CodeRunService.runCppCode(codeCaseEntity.getInput());
-
-                } else {
-                    userCodeOutput= CodeRunService.runCCode(codeCaseEntity.getInput());
-                }
-                userCodeOutput = userCodeOutput.trim();
-                if (userCodeOutput.equals(codeCaseEntity.getOutput())) {
-                    casePassed++;
-                }
-                log.info("userCodeOutput : {} and expected output {} ", userCodeOutput, codeCaseEntity.getOutput());
-
-                CodeCaseReportDTO report = new CodeCaseReportDTO(
-                        codeCaseEntity.getId(),
-                        codeCaseEntity.getInput(),
-                        codeCaseEntity.getOutput(),
-                        userCodeOutput,
-                        userCodeOutput.equals(codeCaseEntity.getOutput())
-                );
-                codeCaseReportDTOS.add(report);
-            }
-            CodeRunService.cleanupGeneratedFiles();
-            long totalRunTime = System.currentTimeMillis() - runTimeStart;
-            boolean isPassed = (casePassed * 100 / codingExerciseEntity.getRunCases().size()) >= codingExerciseEntity.getMinimumPercentageToPass();
+            boolean isPassed = (casePassed * 100 / submission.getCodeCases().size()) >= codingExercise.getMinimumPercentageToPass();
             log.info("Total run time : {} ms and isPassed {}", totalRunTime, isPassed);
             return new CodeExecutionStatus(
-                    codingExerciseEntity.getTotalRunCases(),
+                    codingExercise.getTotalRunCases(),
                     casePassed,
                     TotalCompileTime + totalRunTime,
                     isPassed,
-                    codingExerciseEntity.getMaxAttempts(),
-                    codingExerciseEntity.getMaxAttempts() - attemptCount,
+                    codingExercise.getMaxAttempts(),
+                    codingExercise.getMaxAttempts() - attemptCount,
                     null,
                     codeCaseReportDTOS
             );
         } else if (code.getExecutionType() == ExecutionType.SUBMIT_CASES) {
-            int casePassed = 0;
-            long runTimeStart = System.currentTimeMillis();
-            for (CodeCaseEntity codeCaseEntity : codingExerciseEntity.getSubmitCases()) {
-                String userCodeOutput = "";
-                if (language.getName().equalsIgnoreCase("java")) {
-                    userCodeOutput = CodeRunService.runJavaClass("Solution", codeCaseEntity.getInput());
-                } else if(language.getName().equalsIgnoreCase("python")) {
-                    userCodeOutput = CodeRunService.runPythonCode(code.getCode(), codeCaseEntity.getInput());
-                } else if (language.getName().equalsIgnoreCase("cpp")) {
-                    userCodeOutput = CodeRunService.runCppCode(codeCaseEntity.getInput());
-
-                } else {
-                    userCodeOutput = CodeRunService.runCCode(codeCaseEntity.getInput());
-                }
-                userCodeOutput = userCodeOutput.trim();
-                if (userCodeOutput.equals(codeCaseEntity.getOutput())) {
-                    casePassed++;
-                }
-                log.info("userCodeOutput : {} and expected output {} ", userCodeOutput, codeCaseEntity.getOutput());
-
-                CodeCaseReportDTO report = new CodeCaseReportDTO(
-                        codeCaseEntity.getId(),
-                        codeCaseEntity.getInput(),
-                        codeCaseEntity.getOutput(),
-                        userCodeOutput,
-                        userCodeOutput.equals(codeCaseEntity.getOutput())
-                );
-                codeCaseReportDTOS.add(report);
-            }
-            CodeRunService.cleanupGeneratedFiles();
-            long totalRunTime = System.currentTimeMillis() - runTimeStart;
-            boolean isPassed = (casePassed * 100 / codingExerciseEntity.getSubmitCases().size()) >= codingExerciseEntity.getMinimumPercentageToPass();
+            boolean isPassed = (casePassed * 100 / submission.getCodeCases().size()) >= codingExercise.getMinimumPercentageToPass();
             log.info("Total run time : {} ms and isPassed {}", totalRunTime, isPassed);
 
-            int score = (codingExerciseEntity.getMarks() * casePassed) / codingExerciseEntity.getTotalSubmitCases();
-            log.info("score : {}, Marks : {}, TotalSubmitCases : {}, CasePassed : {}", score, codingExerciseEntity.getMarks(), codingExerciseEntity.getTotalSubmitCases(), casePassed);
-            double percentageScore = codingExerciseEntity.getMarks() > 0 ? (100.0 * score) / codingExerciseEntity.getMarks() : 0.0;
-            // **Update the course statistics if the user passed the codingExercise
-            if (isPassed && (codingExerciseAttemptHistoryEntity == null || !codingExerciseAttemptHistoryEntity.getIsPassed())) {
-                Long courseId = null;
-                if (codingExerciseEntity.getCourse() != null)
-                    courseId = codingExerciseEntity.getCourse().getId();
-                else if (codingExerciseEntity.getChapter() != null)
-                    courseId = codingExerciseEntity.getChapter().getCourse().getId();
-
-                log.info("Updating course statistics for first time passing the coding exercise");
-                courseStatisticsService.updatePassedCodingExercise(appUserEntity.getId(), courseId);
-
-            }
-            double rankScore = calculateRankScore(percentageScore, 7200, code.getDuration(), codingExerciseEntity.getMaxAttempts(), attemptCount);
+            int score = (codingExercise.getMarks() * casePassed) / codingExercise.getTotalSubmitCases();
+            log.info("score : {}, Marks : {}, TotalSubmitCases : {}, CasePassed : {}", score, codingExercise.getMarks(), codingExercise.getTotalSubmitCases(), casePassed);
+            double percentageScore = codingExercise.getMarks() > 0 ? (100.0 * score) / codingExercise.getMarks() : 0.0;
+            // **Update the course statistics if the user passed the codingExercise, decided before the history changes
+            boolean firstPass = isPassed && (codingExerciseAttemptHistoryEntity == null || !codingExerciseAttemptHistoryEntity.getIsPassed());
+            double rankScore = calculateRankScore(percentageScore, 7200, code.getDuration(), codingExercise.getMaxAttempts(), attemptCount);
             if (codingExerciseAttemptHistoryEntity == null) {
                 codingExerciseAttemptHistoryEntity = new CodingExerciseAttemptHistoryEntity(
                         0L,
                         Timestamp.from(Instant.now()),
                         attemptCount,
                         isPassed,
-                        codingExerciseEntity.getTotalSubmitCases(),
+                        codingExercise.getTotalSubmitCases(),
                         casePassed,
                         code.getDuration(),
                         TotalCompileTime + totalRunTime,
@@ -337,7 +384,7 @@ public class AppUserCodingExerciseServiceImpl implements AppUserCodingExerciseSe
                     0L,
                     Timestamp.from(Instant.now()),
                     isPassed,
-                    codingExerciseEntity.getTotalSubmitCases(),
+                    codingExercise.getTotalSubmitCases(),
                     casePassed,
                     code.getDuration(),
                     TotalCompileTime + totalRunTime,
@@ -347,20 +394,19 @@ public class AppUserCodingExerciseServiceImpl implements AppUserCodingExerciseSe
                     appUserLearningUnitModelMapper.toEntityList(codeCaseReportDTOS),
                     codingExerciseEntity,
                     language,
-                    codingExerciseEntity.getMarks(),
+                    codingExercise.getMarks(),
                     score,
                     percentageScore
             );
             savedCodingExerciseAttemptEntity = codingExerciseAttemptRepository.save(codingExerciseAttemptEntity);
             log.info("Saved Coding exercise attempt : {}", savedCodingExerciseAttemptEntity.getId());
-            //Update daily Streak
-            dailyStreakService.updateCodingExerciseStreak(appUserEntity.getId(), savedCodingExerciseAttemptEntity, code.getDuration());
-
+            //Update daily Streak, statistics and ongoing activity once committed
+            eventPublisher.publishEvent(new CodingExerciseAttemptRecordedEvent(
+                    appUserEntity.getId(), codingExercise, savedCodingExerciseAttemptEntity, code.getDuration(), firstPass, true));
 
 //            log.info("Total points: " + totalPoints);
-            courseStatisticsService.updateOngoingActivity(codingExerciseEntity.getCourse().getId(), LearningUnitType.CODING_EXERCISE, codingExerciseEntity.getName());
 
-            int updatedRows = courseEnrollRepository.updateProgressStatus(appUserEntity.getId(), codingExerciseEntity.getCourse().getId());
+            int updatedRows = courseEnrollRepository.updateProgressStatus(appUserEntity.getId(), codingExercise.getCourseId());
             if (updatedRows > 0) {
                 log.info("Course progress updated to IN_PROGRESS.");
             } else {
@@ -368,12 +414,12 @@ public class AppUserCodingExerciseServiceImpl implements AppUserCodingExerciseSe
             }
             log.info("Competed");
             return new CodeExecutionStatus(
-                    codingExerciseEntity.getTotalSubmitCases(),
+                    codingExercise.getTotalSubmitCases(),
                     casePassed,
                     TotalCompileTime + totalRunTime,
                     isPassed,
-                    codingExerciseEntity.getMaxAttempts(),
-                    codingExerciseEntity.getMaxAttempts() - attemptCount,
+                    codingExercise.getMaxAttempts(),
+                    codingExercise.getMaxAttempts() - attemptCount,
                     null,
                     codeCaseReportDTOS
             );
@@ -441,37 +487,92 @@ public class AppUserCodingExerciseServiceImpl implements AppUserCodingExerciseSe
 
     @Override
     public List<CodingExerciseAttemptHistoryDTO> getAllAttempted(Long chapterId, Long courseId, String sortBy, Sort.Direction sortDirection) {
-        List<CodingExerciseEntity> codingExerciseEntities = null;
+        List<CodingExerciseAttemptHistoryEntity> codingExerciseAttemptHistoryEntities = null;
         AppUserEntity appUserEntity = appUserService.getAuthenticatedAppUser();
 
+        // One query for all histories of the chapter or course, not one per exercise
         if (chapterId != null && chapterId != 0) {
-            codingExerciseEntities = codingExerciseRepository.findAllByChapter_IdAndLearningUnitStatusIn(
+            codingExerciseAttemptHistoryEntities = codingExerciseAttemptHistoryQueryRepository.findAllByChapter(
+                    appUserEntity.getId(),
                     chapterId,
                     List.of(LearningUnitStatus.ACTIVE, LearningUnitStatus.PENDING_UPDATION_APPROVAL),
                     Sort.by(sortDirection, sortBy)
             );
 
         } else if (courseId != null && courseId != 0) {
-            codingExerciseEntities = codingExerciseRepository.findAllByCourse_IdAndLearningUnitStatusIn(
+            codingExerciseAttemptHistoryEntities = codingExerciseAttemptHistoryQueryRepository.findAllByCourse(
+                    appUserEntity.getId(),
                     courseId,
                     List.of(LearningUnitStatus.ACTIVE, LearningUnitStatus.PENDING_UPDATION_APPROVAL),
                     Sort.by(sortDirection, sortBy)
             );
         }
-        if (codingExerciseEntities == null || codingExerciseEntities.size() == 0) {
+        if (codingExerciseAttemptHistoryEntities == null || codingExerciseAttemptHistoryEntities.size() == 0) {
             return new ArrayList<>();
         }
-        // Remove null values from the list
-        return codingExerciseEntities.stream()
-                .map(codingExerciseEntity -> codingExerciseAttemptHistoryRepository
-                        .findByCodingExercise_IdAndAttemptedBy_Id(codingExerciseEntity.getId(), appUserEntity.getId())
-                        .map(appUserLearningUnitModelMapper::toCodingExerciseAttemptHistoryDto)
-                        .orElse(null)
-                )
-                .filter(Objects::nonNull)
+        return codingExerciseAttemptHistoryEntities.stream()
+                .map(appUserLearningUnitModelMapper::toCodingExerciseAttemptHistoryDto)
                 .toList();
     }
 
+    @Override
+    public Page<CodingExerciseAttemptHistoryDTO> getAllAttempted(Long chapterId, Long courseId, String sortBy, Sort.Direction sortDirection, Integer pageSize, Integer pageIndex) {
+        Pageable pageable = PageRequest.of(pageIndex, pageSize, Sort.by(sortDirection, sortBy));
+        AppUserEntity appUserEntity = appUserService.getAuthenticatedAppUser();
+
+        Page<CodingExerciseAttemptHistoryEntity> codingExerciseAttemptHistoryEntities;
+        if (chapterId != null && chapterId != 0) {
+            codingExerciseAttemptHistoryEntities = codingExerciseAttemptHistoryQueryRepository.findAllByChapter(
+                    appUserEntity.getId(),
+                    chapterId,
+                    List.of(LearningUnitStatus.ACTIVE, LearningUnitStatus.PENDING_UPDATION_APPROVAL),
+                    pageable
+            );
+        } else if (courseId != null && courseId != 0) {
+            codingExerciseAttemptHistoryEntities = codingExerciseAttemptHistoryQueryRepository.findAllByCourse(
+                    appUserEntity.getId(),
+                    courseId,
+                    List.of(LearningUnitStatus.ACTIVE, LearningUnitStatus.PENDING_UPDATION_APPROVAL),
+                    pageable
+            );
+        } else {
+            return Page.empty(pageable);
+        }
+        return codingExerciseAttemptHistoryEntities.map(appUserLearningUnitModelMapper::toCodingExerciseAttemptHistoryDto);
+    }
+
+    /**
+     * A submission that passed the attempt checks, with everything the judge and the persistence step
+     * need loaded up front so both can run off the request thread.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class PreparedSubmission {
+        private final AppUserEntity appUserEntity;
+        private final CodingExerciseSnapshot codingExercise;
+        private final CodingExerciseAttemptHistoryEntity codingExerciseAttemptHistoryEntity;
+        private final LanguageSnapshot language;
+        private final Code code;
+        private final List<CaseSnapshot> codeCases;
+        private final boolean lastAttempt;
+        private final ExecutionLimits limits;
+        private final int requiredPasses;
+        private final OutputComparator outputComparator;
+
+        JudgeRequest toJudgeRequest(Consumer<CodeCaseReportDTO> caseListener) {
+            return JudgeRequest.builder()
+                    .codingExerciseId(codingExercise.getId())
+                    .language(language.getName())
+                    .code(code.getCode())
+                    .codeCases(codeCases)
+                    .limits(limits)
+                    .requiredPasses(requiredPasses)
+                    .outputComparator(outputComparator)
+                    .caseListener(caseListener)
+                    .build();
+        }
+    }
+
 /*private Long id;
                 private Timestamp attemptedOn;
                 private Boolean isPassed;
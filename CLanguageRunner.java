@@ -0,0 +1,45 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+
+/**
+ * C is compiled with gcc to a native binary in the workspace and run through the {@link NativeSupervisorPool} for each case, with setrlimit limits.
+ */
+@Component
+@RequiredArgsConstructor
+public class CLanguageRunner implements LanguageRunner {
+    private final CodeRunService codeRunService;
+    private final CompilerProfileProperties compilerProfiles;
+
+    @Override
+    public String getLanguage() {
+        return "c";
+    }
+
+    @Override
+    public String getCompilerFlags() {
+        return compilerProfiles.getC().toString();
+    }
+
+    @Override
+    public CompiledArtifact compile(Workspace workspace, String code) throws Exception {
+        String errMessage = codeRunService.compileCCode(workspace, code);
+        return errMessage != null ? CompiledArtifact.error(errMessage) : CompiledArtifact.binary(Files.readAllBytes(workspace.resolve("solution")));
+    }
+
+    @Override
+    public void prepare(Workspace workspace, CompiledArtifact artifact) throws Exception {
+        // A cached binary was never written to this workspace
+        if (!Files.exists(workspace.resolve("solution"))) {
+            workspace.writeExecutable("solution", artifact.getBinary());
+        }
+    }
+
+    @Override
+    public String execute(Workspace workspace, CompiledArtifact artifact, String input, ExecutionLimits limits) throws Exception {
+        return codeRunService.runCCode(workspace, input, limits);
+    }
+}
@@ -0,0 +1,47 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a process stream into memory but never more than a fixed number of bytes, so a program
+ * printing in a loop cannot grow the service heap.
+ */
+public class CappedOutputCollector {
+    private final long limitBytes;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private boolean exceeded;
+
+    public CappedOutputCollector(long limitBytes) {
+        this.limitBytes = limitBytes;
+    }
+
+    /**
+     * Reads until the end of the stream. Returns {@code false} when it stopped early because the
+     * limit was passed; the caller is expected to kill the writer then.
+     */
+    public boolean collect(InputStream in) throws IOException {
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            long room = limitBytes - buffer.size();
+            if (read > room) {
+                buffer.write(chunk, 0, (int) Math.max(room, 0));
+                exceeded = true;
+                return false;
+            }
+            buffer.write(chunk, 0, read);
+        }
+        return true;
+    }
+
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    public String getText() {
+        return buffer.toString(StandardCharsets.UTF_8).replace("\r\n", "\n");
+    }
+}
@@ -0,0 +1,94 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the code cases of one submission in parallel on a bounded pool and hands the results
+ * back in the original case order.
+ */
+@Component
+@Slf4j
+public class CaseExecutionEngine implements DisposableBean {
+    private final ExecutorService executor;
+
+    @FunctionalInterface
+    public interface CaseRunner {
+        CaseResult run(CaseSnapshot codeCase) throws Exception;
+    }
+
+    public CaseExecutionEngine(@Value("${coderunner.case-pool-size:0}") int poolSize) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        // Case threads mostly block on child processes; Java 17 has no virtual threads, so keep a fixed pool
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "code-case-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Case execution engine started with {} threads", threads);
+    }
+
+    /**
+     * Runs every case and returns the results in case order. Results are counted in case order too:
+     * at the first case after which fewer than {@code requiredPasses} cases can still pass, the cases
+     * still in flight are cancelled and every later slot is left {@code null}, even for cases that had
+     * already finished. The cutoff never depends on which case finished first, so the same code always
+     * gets the same results. Pass {@code 0} to always run every case.
+     */
+    public List<CaseResult> runAll(List<CaseSnapshot> codeCases, CaseRunner caseRunner, int requiredPasses) throws Exception {
+        CaseResult[] results = new CaseResult[codeCases.size()];
+        CaseResult[] counted = new CaseResult[codeCases.size()];
+        CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Integer>> futures = new ArrayList<>(codeCases.size());
+        for (int i = 0; i < codeCases.size(); i++) {
+            int index = i;
+            futures.add(completionService.submit(() -> {
+                results[index] = caseRunner.run(codeCases.get(index));
+                return index;
+            }));
+        }
+
+        boolean[] finished = new boolean[codeCases.size()];
+        int next = 0;
+        int failed = 0;
+        try {
+            while (next < codeCases.size()) {
+                finished[completionService.take().get()] = true;
+                while (next < codeCases.size() && finished[next] && failed <= codeCases.size() - requiredPasses) {
+                    counted[next] = results[next];
+                    if (!counted[next].isPassed()) {
+                        failed++;
+                    }
+                    next++;
+                }
+                if (failed > codeCases.size() - requiredPasses) {
+                    log.info("Pass threshold of {} cases is no longer reachable, stopping after case {}", requiredPasses, next);
+                    break;
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        // Cases finishing after the cancel may still write their slot, only report what was counted
+        return Arrays.asList(counted);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,190 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * Normalized case inputs kept as files, so native runs read stdin straight from the page cache.
+ * <p>
+ * Files are named by the SHA-256 of the raw input and the normalization version, so an input is
+ * normalized and written once and shared by every submission that runs it. The supervisor opens the
+ * file and hands it to the program as its stdin, and the input bytes never cross the supervisor
+ * protocol. Least recently used files are deleted once the store grows past its size budget, except
+ * the ones a run holds pinned, so the budget can be exceeded while many large inputs are in use.
+ */
+@Component
+@Slf4j
+public class CaseInputStore implements DisposableBean {
+    // Bump when normalize() changes, so files written by the old rules are not reused
+    private static final String NORMALIZATION_VERSION = "v2";
+    private static final Pattern BLANK_RUNS = Pattern.compile(" +");
+
+    private final Workspace storeDirectory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long sizeBytes;
+    private long hitCount;
+    private long missCount;
+
+    public CaseInputStore(@Value("${coderunner.case-store.max-bytes:268435456}") long maxBytes) throws IOException {
+        this.storeDirectory = Workspace.create();
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Puts every value on its own line, the way the runners have always fed case inputs to programs.
+     */
+    public static String normalize(String input) {
+        return BLANK_RUNS.matcher(input.trim()).replaceAll("\n") + "\n";
+    }
+
+    /**
+     * Returns the file holding the normalized stdin of a native run, writing it on first use. The
+     * file is pinned, so it is not evicted until the returned handle is closed after the run.
+     */
+    public StdinFile acquire(String input) throws IOException {
+        String fileName = NORMALIZATION_VERSION + "-" + CompilationCache.sha256(input) + ".in";
+        Path file = storeDirectory.resolve(fileName);
+        Entry entry;
+        boolean writer;
+        synchronized (this) {
+            entry = entries.get(fileName);
+            writer = entry == null;
+            if (writer) {
+                entry = new Entry();
+                entries.put(fileName, entry);
+                missCount++;
+            } else {
+                hitCount++;
+            }
+            entry.pins++;
+        }
+        StdinFile stdinFile = new StdinFile(file, entry);
+        try {
+            if (writer) {
+                write(file, entry, input);
+            } else {
+                // Someone else may still be writing this input, their file is the one to use
+                entry.written.get();
+            }
+        } catch (ExecutionException e) {
+            stdinFile.close();
+            throw new IOException("Could not write case input: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            stdinFile.close();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for case input", e);
+        } catch (IOException | RuntimeException e) {
+            stdinFile.close();
+            throw e;
+        }
+        return stdinFile;
+    }
+
+    private void write(Path file, Entry entry, String input) throws IOException {
+        try {
+            byte[] content = normalize(input).getBytes(StandardCharsets.UTF_8);
+            Path partial = Files.createTempFile(storeDirectory.getDirectory(), file.getFileName().toString(), ".partial");
+            Files.write(partial, content);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (this) {
+                entry.sizeBytes = content.length;
+                sizeBytes += content.length;
+                evictUnpinned();
+            }
+            entry.written.complete(null);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                entries.remove(file.getFileName().toString(), entry);
+            }
+            entry.written.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.pins--;
+        evictUnpinned();
+    }
+
+    // Least recently used first, files a run is about to open or still reading are skipped
+    private void evictUnpinned() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (sizeBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Entry> candidate = eldest.next();
+            if (candidate.getValue().pins > 0 || !candidate.getValue().written.isDone()) {
+                continue;
+            }
+            sizeBytes -= candidate.getValue().sizeBytes;
+            eldest.remove();
+            try {
+                Files.deleteIfExists(storeDirectory.resolve(candidate.getKey()));
+            } catch (IOException e) {
+                log.warn("Could not delete case input {}: {}", candidate.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    @Override
+    public void destroy() {
+        storeDirectory.close();
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+        private long sizeBytes;
+        private int pins;
+    }
+
+    /**
+     * A pinned case input, close it once the run that reads it has returned.
+     */
+    public final class StdinFile implements AutoCloseable {
+        private final Path path;
+        private final Entry entry;
+        private boolean closed;
+
+        private StdinFile(Path path, Entry entry) {
+            this.path = path;
+            this.entry = entry;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import com.trainingmug.practiceplatform.user.dto.learningunit.codingexercise.CodeCaseReportDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Report of a single code case together with its verdict, so the engine can count passes
+ * without reaching into the DTO.
+ */
+@Getter
+@AllArgsConstructor
+public class CaseResult {
+    private final CodeCaseReportDTO report;
+    private final Verdict verdict;
+
+    public boolean isPassed() {
+        return verdict == Verdict.ACCEPTED;
+    }
+}
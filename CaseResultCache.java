@@ -0,0 +1,89 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Remembers case results of deterministic exercises, keyed by the compiled artifact, the case id
+ * and a version derived from the case input and expected output. Only exercises listed in
+ * {@code coderunner.result-cache.exercise-ids} take part.
+ * <p>
+ * Limit verdicts depend on load and are always re-run, every other verdict is kept.
+ */
+@Component
+@Slf4j
+public class CaseResultCache {
+    private final Set<Long> exerciseIds;
+    private final Map<String, CaseResult> entries;
+    private long hitCount;
+    private long missCount;
+
+    public CaseResultCache(@Value("${coderunner.result-cache.exercise-ids:}") Set<Long> exerciseIds,
+                           @Value("${coderunner.result-cache.max-entries:10000}") int maxEntries) {
+        this.exerciseIds = Set.copyOf(exerciseIds);
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CaseResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public boolean isEnabled(Long codingExerciseId) {
+        return exerciseIds.contains(codingExerciseId);
+    }
+
+    public synchronized Optional<CaseResult> get(Long codingExerciseId, String artifactKey, CaseSnapshot codeCase, ExecutionLimits limits) {
+        CaseResult caseResult = entries.get(key(codingExerciseId, artifactKey, codeCase, limits));
+        if (caseResult == null) {
+            missCount++;
+            return Optional.empty();
+        }
+        hitCount++;
+        return Optional.of(caseResult);
+    }
+
+    public synchronized void put(Long codingExerciseId, String artifactKey, CaseSnapshot codeCase, ExecutionLimits limits, CaseResult caseResult) {
+        if (caseResult.getVerdict() == Verdict.ACCEPTED || caseResult.getVerdict() == Verdict.WRONG_ANSWER
+                || caseResult.getVerdict() == Verdict.RUNTIME_ERROR) {
+            entries.put(key(codingExerciseId, artifactKey, codeCase, limits), caseResult);
+        }
+    }
+
+    public synchronized void invalidateExercise(Long codingExerciseId) {
+        String prefix = codingExerciseId + "|";
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+        log.info("Dropped cached case results of coding exercise {}", codingExerciseId);
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    @EventListener
+    public synchronized void onCodingExerciseChanged(CodingExerciseChangedEvent event) {
+        if (event.isAllExercises()) {
+            entries.clear();
+            log.info("Dropped all cached case results");
+        } else {
+            invalidateExercise(event.getCodingExerciseId());
+        }
+    }
+
+    private static String key(Long codingExerciseId, String artifactKey, CaseSnapshot codeCase, ExecutionLimits limits) {
+        String caseVersion = CompilationCache.sha256(codeCase.getInput() + "\0" + codeCase.getOutput());
+        return codingExerciseId + "|" + artifactKey + "|" + codeCase.getId() + "|" + caseVersion
+                + "|" + limits.getTimeLimitMillis() + "|" + limits.getMemoryLimitMb() + "|" + limits.getOutputLimitBytes();
+    }
+}
@@ -0,0 +1,21 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import com.trainingmug.practiceplatform.admin.entity.learningunit.CodeCaseEntity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Read-only copy of one code case, the part of a {@code CodeCaseEntity} the judge needs. Safe to
+ * share between judge threads and to use in cache keys.
+ */
+@Getter
+@AllArgsConstructor
+public final class CaseSnapshot {
+    private final Long id;
+    private final String input;
+    private final String output;
+
+    public static CaseSnapshot of(CodeCaseEntity codeCaseEntity) {
+        return new CaseSnapshot(codeCaseEntity.getId(), codeCaseEntity.getInput(), codeCaseEntity.getOutput());
+    }
+}
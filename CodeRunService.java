@@ -1,110 +1,79 @@
 package com.trainingmug.practiceplatform.user.util.coderunner;
 
-import jep.SharedInterpreter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import javax.tools.JavaCompiler;
-import javax.tools.ToolProvider;
 import java.io.*;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.InputMismatchException;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class CodeRunService {
-    public static String compileJavaCode(String code) throws Exception {
-        String className = "Solution";
-        String fileName = className + ".java";
-
-        // Write Java code to a file
-        File sourceFile = new File(fileName);
-        try (FileWriter writer = new FileWriter(sourceFile)) {
-            writer.write(code);
-        }
-
-        // Prepare a stream to capture compilation errors
-        ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
-        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-        int result = compiler.run(null, null, new PrintStream(errorStream), sourceFile.getPath());
-
-        if (result != 0) {
-            return errorStream.toString();
-        }
-        return null;
+    // A process killed by the kernel for exceeding its CPU-time limit dies with SIGXCPU
+    private static final int SIGXCPU = 24;
+    // What running out of memory usually ends in: an abort from C++, a segfault on a null pointer from malloc in C, or the OOM killer
+    private static final Set<Integer> ALLOCATION_FAILURE_SIGNALS = Set.of(6, 7, 9, 11);
+    private static final Map<Integer, String> SIGNAL_NAMES = Map.of(
+            6, "SIGABRT", 7, "SIGBUS", 8, "SIGFPE", 9, "SIGKILL", 11, "SIGSEGV");
+    private static final long COMPILE_TIME_LIMIT_MILLIS = 30_000;
+    private static final long COMPILE_OUTPUT_LIMIT_BYTES = 64 * 1024;
+
+    private final JavaWorkerPool javaWorkerPool;
+    private final PythonWorkerPool pythonWorkerPool;
+    private final CompilerProfileProperties compilerProfiles;
+    private final PrecompiledHeaders precompiledHeaders;
+    private final NativeSupervisorPool nativeSupervisorPool;
+    private final CaseInputStore caseInputStore;
+
+    public CompiledJava compileJavaCode(String code) {
+        // Compile in memory, no Solution.java / Solution.class round-trip through the working directory
+        return InMemoryJavaCompiler.compile("Solution", code);
     }
 
     // Method to execute compiled Java class with input
-    public static String runJavaClass(String className, String input) throws Exception {
-        try {
-            // Load compiled class dynamically
-            URLClassLoader classLoader = URLClassLoader.newInstance(new URL[]{new File(".").toURI().toURL()});
-            Class<?> dynamicClass = Class.forName(className, true, classLoader);
-
-            // Capture System.out output
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            PrintStream originalOut = System.out;
-            System.setOut(new PrintStream(outputStream));
-
-            // Provide input using ByteArrayInputStream
-            InputStream originalIn = System.in;
-            System.setIn(new ByteArrayInputStream(input.getBytes()));
-
-            // Execute the class's main method
-            Method mainMethod = dynamicClass.getDeclaredMethod("main", String[].class);
-            mainMethod.invoke(null, (Object) new String[]{});
-
-            // Restore System.out and System.in
-            System.setOut(originalOut);
-            System.setIn(originalIn);
-
-            return outputStream.toString();
-        } catch (InvocationTargetException e) {
-            Throwable cause = e.getCause();
-            if (cause instanceof InputMismatchException) {
-                log.error("InputMismatchException - The input is of an incorrect type.", cause);
-                throw new InputMismatchException("The input is of an incorrect type.");
-            } else if (cause instanceof NoSuchElementException) {
-                log.error("NoSuchElementException - Scanner tried to read but no input was provided.", cause);
-                throw new NoSuchElementException("Scanner tried to read but no input was provided.");
-            } else if (cause instanceof NullPointerException) {
-                log.error("NullPointerException - A null object was accessed in the executed code.", cause);
-                throw new NullPointerException("A null object was accessed in the executed code.");
+    public String runJavaClass(CompiledJava compiledJava, String className, String input, ExecutionLimits limits) throws Exception {
+        // Runs in a forked worker JVM with its own stdio, the service's System.in/System.out stay untouched
+        JavaWorkerResult result = javaWorkerPool.execute(compiledJava, className, input, limits);
+        log.debug("Java run finished with status {} in {} ms", result.getStatus(), result.getElapsedNanos() / 1_000_000);
+
+        if (result.getStatus() == JavaWorkerMain.STATUS_OUTPUT_LIMIT) {
+            throw LimitExceededException.output(limits.getOutputLimitBytes());
+        } else if (result.getStatus() == JavaWorkerMain.STATUS_MEMORY_LIMIT) {
+            throw LimitExceededException.memory(limits.getMemoryLimitMb());
+        } else if (result.getStatus() == JavaWorkerMain.STATUS_RUNTIME_ERROR) {
+            // The program's own fault, graded as a runtime error on this case like in every other language
+            String errorType = result.getErrorType();
+            log.info("Java run failed with {}: {}", errorType, result.getErrorMessage());
+            if (errorType.equals(InputMismatchException.class.getName())) {
+                throw new ProgramErrorException("InputMismatchException: The input is of an incorrect type.");
+            } else if (errorType.equals(NoSuchElementException.class.getName())) {
+                throw new ProgramErrorException("NoSuchElementException: Scanner tried to read but no input was provided.");
+            } else if (errorType.equals(NullPointerException.class.getName())) {
+                throw new ProgramErrorException("NullPointerException: A null object was accessed in the executed code.");
             } else {
-                log.error("Unexpected exception occurred: {}", cause.getMessage(), cause);
-                throw new Exception("Error in execution: " + cause.getMessage(), cause);
+                String simpleName = errorType.substring(errorType.lastIndexOf('.') + 1);
+                throw new ProgramErrorException(simpleName + ": " + result.getErrorMessage());
             }
+        } else if (result.getStatus() == JavaWorkerMain.STATUS_INTERNAL_ERROR) {
+            log.error("Could not start compiled class: {}: {}", result.getErrorType(), result.getErrorMessage());
+            throw new Exception("Error in execution: " + result.getErrorMessage());
         }
+        return result.getOutput();
     }
 
-    public static String compileCCode(String cCode) throws Exception {
+    public String compileCCode(Workspace workspace, String cCode) throws Exception {
         try {// 1. Save code to a file
-            String cFile = "solution.c";
-            Files.write(Paths.get(cFile), cCode.getBytes());
-
-            Process compile = new ProcessBuilder("g++", cFile, "-o", "solution").start();
-            compile.waitFor();
-
-
-            String line;
-            BufferedReader stdErrReader = new BufferedReader(new InputStreamReader(compile.getErrorStream()));
-            StringBuilder stderrOutput = new StringBuilder();
-            while ((line = stdErrReader.readLine()) != null) {
-                stderrOutput.append(line).append("\n");
-            }
-
-            if (!stderrOutput.toString().trim().isEmpty()) {
-                return "Compilation Error: " + stderrOutput.toString().trim();
-            }
-
-            return null;
-
+            Files.write(workspace.resolve("solution.c"), cCode.getBytes());
+            return compileNative(workspace, "c", compilerProfiles.getC(), "solution.c");
+        } catch (CompilerUnavailableException e) {
+            throw e;
         } catch (Exception e) {
 
             log.error("Compilation Error: {}", e.getMessage(), e);
@@ -114,40 +83,12 @@ public class CodeRunService {
 
     }
 
-    public static String runCCode(String input) throws Exception {
+    public String runCCode(Workspace workspace, String input, ExecutionLimits limits) throws Exception {
         log.info("Input: {}", input);
-        input = input.trim().replaceAll(" +", "\n") + "\n";
         try {
-            Process run = new ProcessBuilder("./solution").start();
-
-            // 4. Write input to process
-            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(run.getOutputStream()));
-            writer.write(input);
-            writer.newLine();
-            writer.flush();
-            writer.close();
-
-            BufferedReader reader = new BufferedReader(new InputStreamReader(run.getInputStream()));
-            StringBuilder output = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
-
-            // Runtime errors from stderr
-            BufferedReader errorReader = new BufferedReader(new InputStreamReader(run.getErrorStream()));
-            StringBuilder runtimeError = new StringBuilder();
-            while ((line = errorReader.readLine()) != null) {
-                runtimeError.append(line).append("\n");
-            }
-
-            if (!runtimeError.toString().trim().isEmpty()) {
-                return "Runtime Error:\n" + runtimeError.toString().trim();
-            }
-            log.info("Output: {}", output);
-            log.error("Runtime Error: {}", runtimeError);
-
-            return output.toString().trim();
+            return runNative(workspace, input, limits);
+        } catch (LimitExceededException | ProgramErrorException e) {
+            throw e;
         } catch (IOException e) {
             log.error("Solution.exe does not exist: {}", e.getMessage());
             throw new Exception("Solution.exe does not exist: " + e.getMessage());
@@ -159,124 +100,135 @@ public class CodeRunService {
     }
 
 
-    public static String compileCppCode(String cppCode) throws Exception {
+    public String compileCppCode(Workspace workspace, String cppCode) throws Exception {
         try {
             // Save code to file
-            String cppFile = "solution.cpp";
-            Files.write(Paths.get(cppFile), cppCode.getBytes());
+            Files.write(workspace.resolve("solution.cpp"), cppCode.getBytes());
 
             // Compile C++ code
-            Process compile = new ProcessBuilder("g++", cppFile, "-o", "solution").start();
-            compile.waitFor();
-
-            BufferedReader stdErrReader = new BufferedReader(new InputStreamReader(compile.getErrorStream()));
-            StringBuilder stderrOutput = new StringBuilder();
-            String line;
-            while ((line = stdErrReader.readLine()) != null) {
-                stderrOutput.append(line).append("\n");
-            }
-
-            if (!stderrOutput.toString().trim().isEmpty()) {
-                return "Compilation Error: " + stderrOutput.toString().trim();
-            }
-
-            return null;
+            return compileNative(workspace, "cpp", compilerProfiles.getCpp(), "solution.cpp");
+        } catch (CompilerUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.info("Compilation failed: {}", e.getMessage());
             throw new Exception("Compilation failed: " + e.getMessage(), e);
         }
     }
 
-    public static String runCppCode(String input) throws Exception {
+    public String runCppCode(Workspace workspace, String input, ExecutionLimits limits) throws Exception {
         log.info("Input: {}", input);
-        input = input.trim().replaceAll(" +", "\n") + "\n";
         try {
-            Process run = new ProcessBuilder("./solution").start();
-
-            // Send input
-            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(run.getOutputStream()));
-            writer.write(input);
-            writer.newLine();
-            writer.flush();
-            writer.close();
-
-            // Read output
-            BufferedReader reader = new BufferedReader(new InputStreamReader(run.getInputStream()));
-            StringBuilder output = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
-
-            // Also read possible runtime errors from stderr
-            BufferedReader errorReader = new BufferedReader(new InputStreamReader(run.getErrorStream()));
-            StringBuilder runtimeError = new StringBuilder();
-            while ((line = errorReader.readLine()) != null) {
-                runtimeError.append(line).append("\n");
-            }
-
-            if (!runtimeError.toString().trim().isEmpty()) {
-                return "Runtime Error:\n" + runtimeError.toString().trim();
-            }
-
-            return output.toString().trim();
+            return runNative(workspace, input, limits);
         } catch (IOException e) {
             throw new Exception("Execution failed: " + e.getMessage(), e);
         }
     }
 
+    // Compiles and links in separate steps, so slow header parsing and slow linking show up apart
+    private String compileNative(Workspace workspace, String language, CompilerProfileProperties.Profile profile, String source)
+            throws IOException, InterruptedException, CompilerUnavailableException {
+        List<String> compileCommand = profile.compileCommand(source, "solution.o", precompiledHeaders.includeFlags(language));
+        String compileError = runCompilerStep(workspace, "Compile", compileCommand);
+        if (compileError != null) {
+            return compileError;
+        }
+        return runCompilerStep(workspace, "Link", profile.linkCommand("solution.o", "solution"));
+    }
 
-    public static String runPythonCode(String code, String input) throws Exception {
-        log.info("Run Python Code: {}", code);
-        log.info("Input: {}", input);
-
-        input = input.trim().replaceAll(" +", "\n") + "\n";
-
-
-        try (SharedInterpreter interp = new SharedInterpreter()) {
-            // Setup simulated input and output
-            interp.exec("import sys");
-            interp.exec("from io import StringIO");
-            interp.exec("import textwrap");
-
-            interp.set("user_input", input);
-            interp.set("code_str", code);
-
-            interp.exec("sys.stdin = StringIO(user_input)");
-            interp.exec("sys.stdout = StringIO()");
-            interp.exec("sys.stderr = StringIO()");
+    private String runCompilerStep(Workspace workspace, String stepName, List<String> command)
+            throws IOException, InterruptedException, CompilerUnavailableException {
+        ProcessResult step = ProcessRunner.run(command, workspace.getDirectory(), new byte[0], COMPILE_TIME_LIMIT_MILLIS, COMPILE_OUTPUT_LIMIT_BYTES);
+        log.info("{} finished with exit code {} in {} ms", stepName, step.getExitCode(), step.getElapsedMillis());
+        if (step.isTimedOut()) {
+            throw new CompilerUnavailableException("Compilation Error: compilation did not finish within " + COMPILE_TIME_LIMIT_MILLIS + " ms");
+        }
+        // Killed by a signal, e.g. under memory pressure, says nothing about the code
+        if (step.getExitCode() >= 128) {
+            throw new CompilerUnavailableException("Compilation Error: the compiler stopped unexpectedly, please submit again");
+        }
+        if (step.getExitCode() != 0) {
+            return "Compilation Error: " + step.getStderr().trim();
+        }
+        // Warnings alone, e.g. an unchecked scanf result under -O2, don't fail the submission
+        if (!step.getStderr().isBlank()) {
+            log.debug("{} warnings: {}", stepName, step.getStderr().trim());
+        }
+        return null;
+    }
 
-//            interp.exec("exec(code_str)");
-            interp.exec("exec(textwrap.dedent(code_str))");
+    private String runNative(Workspace workspace, String input, ExecutionLimits limits) throws Exception {
+        ProcessResult run;
+        try (CaseInputStore.StdinFile stdin = caseInputStore.acquire(input)) {
+            // A warm supervisor forks the binary with the CPU and address-space limits already applied
+            run = nativeSupervisorPool.run(workspace.resolve("solution"), workspace.getDirectory(), stdin.getPath(), limits);
+        }
+        log.debug("Run finished with exit code {} in {} ms", run.getExitCode(), run.getElapsedMillis());
 
-            // Check for Python errors
-            String errorOutput = (String) interp.getValue("sys.stderr.getvalue()");
-            if (!errorOutput.isEmpty()) {
-                return "ERROR: PythonError: " + errorOutput.trim();
-            }
+        if (run.isTimedOut() || run.getTermSignal() == SIGXCPU) {
+            throw LimitExceededException.time(limits.getTimeLimitMillis());
+        }
+        if (run.isOutputLimitExceeded()) {
+            throw LimitExceededException.output(limits.getOutputLimitBytes());
+        }
+        String runtimeError = run.getStderr().trim();
+        boolean crashed = run.getTermSignal() != 0 || run.getExitCode() != 0;
+        if (crashed && ranOutOfMemory(run, runtimeError, limits)) {
+            throw LimitExceededException.memory(limits.getMemoryLimitMb());
+        }
+        if (run.getTermSignal() != 0) {
+            String signalName = SIGNAL_NAMES.getOrDefault(run.getTermSignal(), "signal " + run.getTermSignal());
+            throw new ProgramErrorException("Runtime Error:\nKilled by " + signalName + (runtimeError.isEmpty() ? "" : "\n" + runtimeError));
+        }
+        if (run.getExitCode() != 0) {
+            throw new ProgramErrorException("Runtime Error:\nExited with code " + run.getExitCode() + (runtimeError.isEmpty() ? "" : "\n" + runtimeError));
+        }
+        if (!runtimeError.isEmpty()) {
+            throw new ProgramErrorException("Runtime Error:\n" + runtimeError);
+        }
+        log.info("Output: {}", run.getStdout());
+        return run.getStdout().trim();
+    }
 
-            String output = (String) interp.getValue("sys.stdout.getvalue()");
-            return output.trim();
+    // A crash that reached half the memory limit is taken for a failed allocation, e.g. a vector doubling past the limit
+    private static boolean ranOutOfMemory(ProcessResult run, String runtimeError, ExecutionLimits limits) {
+        if (runtimeError.contains("std::bad_alloc") || runtimeError.contains("Cannot allocate memory")) {
+            return true;
+        }
+        long memoryLimitBytes = limits.getMemoryLimitMb() * 1024 * 1024;
+        return memoryLimitBytes > 0
+                && ALLOCATION_FAILURE_SIGNALS.contains(run.getTermSignal())
+                && run.getPeakMemoryBytes() * 2 >= memoryLimitBytes;
+    }
 
-        } catch (jep.JepException e) {
-            return "ERROR: JepError: " + e.getMessage();
-        } catch (Exception e) {
-            log.error("Unexpected exception occurred: {}", e.getMessage(), e);
-            throw new Exception("Error in execution: " + e.getMessage(), e);
+    public CompiledArtifact compilePythonCode(String code) throws Exception {
+        // Parsed once per submission, the workers only unmarshal the code object for each case
+        PythonWorkerResult result = pythonWorkerPool.compile(code);
+        if (result.getStatus() == PythonWorkerResult.STATUS_COMPILE_ERROR) {
+            return CompiledArtifact.error("PythonError: " + result.getError().trim());
+        } else if (result.getStatus() != PythonWorkerResult.STATUS_OK) {
+            throw new Exception("Error in compilation: " + result.getError());
         }
+        return CompiledArtifact.binary(result.getPayload());
+    }
 
+    public String runPythonCode(byte[] bytecode, String input, ExecutionLimits limits) throws Exception {
+        log.info("Input: {}", input);
 
-    }
+        input = CaseInputStore.normalize(input);
 
-    public static void cleanupGeneratedFiles() {
-        // Java files
-        new File("Solution.java").delete();
-        new File("Solution.class").delete();
+        PythonWorkerResult result = pythonWorkerPool.run(bytecode, input, limits);
+        log.debug("Python run finished with status {} in {} ms", result.getStatus(), result.getElapsedNanos() / 1_000_000);
 
-        // C files
-        new File("Solution.cpp").delete();
-        new File("Solution.c").delete();
-        new File("Solution.exe").delete();
+        if (result.getStatus() == PythonWorkerResult.STATUS_OUTPUT_LIMIT) {
+            throw LimitExceededException.output(limits.getOutputLimitBytes());
+        } else if (result.getStatus() == PythonWorkerResult.STATUS_MEMORY_LIMIT) {
+            throw LimitExceededException.memory(limits.getMemoryLimitMb());
+        } else if (result.getStatus() == PythonWorkerResult.STATUS_RUNTIME_ERROR) {
+            throw new ProgramErrorException("PythonError: " + result.getError().trim());
+        } else if (result.getStatus() != PythonWorkerResult.STATUS_OK) {
+            throw new Exception("Error in execution: " + result.getError());
+        }
+        return result.getPayloadText().trim();
     }
 
 //    public static void main(String[] args) throws Exception {
@@ -302,7 +254,6 @@ public class CodeRunService {
 //
 //        System.out.println(runCCode(input));
 //        System.out.println(System.currentTimeMillis() - runTimeEnd);
-//        cleanupGeneratedFiles();
 //    }
 
 
@@ -0,0 +1,85 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the counters the caches, worker pools and queues already keep as meters. Bound by
+ * Spring Boot on start-up, values are read when the registry is scraped.
+ */
+@Component
+@RequiredArgsConstructor
+public class CodeRunnerMeterBinder implements MeterBinder {
+    private final CompilationCache compilationCache;
+    private final CaseResultCache caseResultCache;
+    private final CaseInputStore caseInputStore;
+    private final JavaWorkerPool javaWorkerPool;
+    private final PythonWorkerPool pythonWorkerPool;
+    private final NativeSupervisorPool nativeSupervisorPool;
+    private final SubmissionJudge submissionJudge;
+    private final SubmissionQueue submissionQueue;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("coderunner.cache.hits", compilationCache, CompilationCache::getHitCount)
+                .tag("cache", "compilation").register(registry);
+        FunctionCounter.builder("coderunner.cache.misses", compilationCache, CompilationCache::getMissCount)
+                .tag("cache", "compilation").register(registry);
+        FunctionCounter.builder("coderunner.cache.evictions", compilationCache, CompilationCache::getEvictionCount)
+                .tag("cache", "compilation").register(registry);
+        Gauge.builder("coderunner.cache.size.bytes", compilationCache, CompilationCache::getSizeBytes)
+                .tag("cache", "compilation").register(registry);
+        FunctionCounter.builder("coderunner.cache.hits", caseResultCache, CaseResultCache::getHitCount)
+                .tag("cache", "result").register(registry);
+        FunctionCounter.builder("coderunner.cache.misses", caseResultCache, CaseResultCache::getMissCount)
+                .tag("cache", "result").register(registry);
+        FunctionCounter.builder("coderunner.cache.hits", caseInputStore, CaseInputStore::getHitCount)
+                .tag("cache", "input").register(registry);
+        FunctionCounter.builder("coderunner.cache.misses", caseInputStore, CaseInputStore::getMissCount)
+                .tag("cache", "input").register(registry);
+        Gauge.builder("coderunner.cache.size.bytes", caseInputStore, CaseInputStore::getSizeBytes)
+                .tag("cache", "input").register(registry);
+
+        Gauge.builder("coderunner.workers", javaWorkerPool, JavaWorkerPool::getWorkerCount)
+                .tag("pool", "java").register(registry);
+        Gauge.builder("coderunner.workers.idle", javaWorkerPool, JavaWorkerPool::getIdleWorkerCount)
+                .tag("pool", "java").register(registry);
+        FunctionCounter.builder("coderunner.workers.exhausted", javaWorkerPool, JavaWorkerPool::getExhaustedCount)
+                .description("Runs that found no idle worker within the acquire timeout")
+                .tag("pool", "java").register(registry);
+        Gauge.builder("coderunner.workers", pythonWorkerPool, PythonWorkerPool::getWorkerCount)
+                .tag("pool", "python").register(registry);
+        Gauge.builder("coderunner.workers.idle", pythonWorkerPool, PythonWorkerPool::getIdleWorkerCount)
+                .tag("pool", "python").register(registry);
+        FunctionCounter.builder("coderunner.workers.exhausted", pythonWorkerPool, PythonWorkerPool::getExhaustedCount)
+                .description("Runs that found no idle worker within the acquire timeout")
+                .tag("pool", "python").register(registry);
+
+        Gauge.builder("coderunner.workers", nativeSupervisorPool, NativeSupervisorPool::getSupervisorCount)
+                .tag("pool", "native").register(registry);
+        Gauge.builder("coderunner.workers.idle", nativeSupervisorPool, NativeSupervisorPool::getIdleSupervisorCount)
+                .tag("pool", "native").register(registry);
+        FunctionCounter.builder("coderunner.workers.exhausted", nativeSupervisorPool, NativeSupervisorPool::getExhaustedCount)
+                .description("Runs that found no idle worker within the acquire timeout")
+                .tag("pool", "native").register(registry);
+
+        Gauge.builder("coderunner.judge.active", submissionJudge, SubmissionJudge::getActiveCount)
+                .description("Judge threads compiling or running a submission").register(registry);
+        Gauge.builder("coderunner.judge.queued", submissionJudge, SubmissionJudge::getQueuedCount)
+                .description("Submissions waiting for a judge thread").register(registry);
+
+        for (SubmissionLane lane : SubmissionLane.values()) {
+            String laneTag = lane.name().toLowerCase();
+            Gauge.builder("coderunner.queue.depth", submissionQueue, queue -> queue.getQueueDepth(lane))
+                    .tag("lane", laneTag).register(registry);
+            Gauge.builder("coderunner.queue.wait.max", submissionQueue, queue -> queue.getMaxWaitMillis(lane))
+                    .tag("lane", laneTag).baseUnit("milliseconds").register(registry);
+        }
+        Gauge.builder("coderunner.queue.running", submissionQueue, SubmissionQueue::getRunningCount)
+                .register(registry);
+    }
+}
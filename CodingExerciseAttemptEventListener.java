@@ -0,0 +1,76 @@
+package com.trainingmug.practiceplatform.user.service.impl.learningunit;
+
+import com.trainingmug.practiceplatform.enums.LearningUnitType;
+import com.trainingmug.practiceplatform.user.service.dashboard.CourseStatisticsService;
+import com.trainingmug.practiceplatform.user.service.dashboard.DailyStreakService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Updates streaks, course statistics and ongoing activity after a graded attempt is committed.
+ * None of it decides the attempt's outcome, so it runs off the submission thread and a failure
+ * here is logged instead of failing the submission.
+ */
+@Component
+@Slf4j
+public class CodingExerciseAttemptEventListener implements DisposableBean {
+    private final DailyStreakService dailyStreakService;
+    private final CourseStatisticsService courseStatisticsService;
+    private final ExecutorService executor;
+
+    public CodingExerciseAttemptEventListener(DailyStreakService dailyStreakService, CourseStatisticsService courseStatisticsService) {
+        this.dailyStreakService = dailyStreakService;
+        this.courseStatisticsService = courseStatisticsService;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "attempt-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAttemptRecorded(CodingExerciseAttemptRecordedEvent event) {
+        // The dashboard services read the authenticated user, carry it over to the event thread
+        executor.execute(new DelegatingSecurityContextRunnable(() -> apply(event)));
+    }
+
+    private void apply(CodingExerciseAttemptRecordedEvent event) {
+        CodingExerciseSnapshot codingExercise = event.getCodingExercise();
+        if (event.isFirstPass()) {
+            log.info("Updating course statistics for first time passing the coding exercise");
+            try {
+                courseStatisticsService.updatePassedCodingExercise(event.getUserId(), codingExercise.getOwningCourseId());
+            } catch (RuntimeException e) {
+                log.error("Could not update course statistics for attempt {}: {}", event.getAttempt().getId(), e.getMessage(), e);
+            }
+        }
+
+        try {
+            dailyStreakService.updateCodingExerciseStreak(event.getUserId(), event.getAttempt(), event.getDuration());
+        } catch (RuntimeException e) {
+            log.error("Could not update daily streak for attempt {}: {}", event.getAttempt().getId(), e.getMessage(), e);
+        }
+
+        if (event.isEvaluated()) {
+            try {
+                courseStatisticsService.updateOngoingActivity(codingExercise.getCourseId(), LearningUnitType.CODING_EXERCISE, codingExercise.getName());
+            } catch (RuntimeException e) {
+                log.error("Could not update ongoing activity for attempt {}: {}", event.getAttempt().getId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,88 @@
+package com.trainingmug.practiceplatform.user.repository.attempt.codingexercise;
+
+import com.trainingmug.practiceplatform.enums.LearningUnitStatus;
+import com.trainingmug.practiceplatform.user.entity.attempt.codingexercise.CodingExerciseAttemptHistoryEntity;
+import com.trainingmug.practiceplatform.user.entity.user.AppUserEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Loads a user's attempt histories for all coding exercises of a chapter or course in one query,
+ * with the exercise fetched alongside, instead of one lookup per exercise.
+ * Sorting applies to the exercise's properties, the same way the exercise listings sort.
+ */
+@Repository
+public class CodingExerciseAttemptHistoryQueryRepository {
+    private static final String SELECT = "select h from CodingExerciseAttemptHistoryEntity h join fetch h.codingExercise e";
+    private static final String COUNT = "select count(h) from CodingExerciseAttemptHistoryEntity h join h.codingExercise e";
+    private static final String CHAPTER_FILTER = " where h.attemptedBy.id = :userId and e.chapter.id = :scopeId and e.learningUnitStatus in :statuses";
+    private static final String COURSE_FILTER = " where h.attemptedBy.id = :userId and e.course.id = :scopeId and e.learningUnitStatus in :statuses";
+    private static final String EXERCISE_FILTER = " where h.attemptedBy.id = :userId and e.id = :codingExerciseId";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public List<CodingExerciseAttemptHistoryEntity> findAllByChapter(Long userId, Long chapterId, List<LearningUnitStatus> statuses, Sort sort) {
+        return query(SELECT + CHAPTER_FILTER, sort, userId, chapterId, statuses).getResultList();
+    }
+
+    public List<CodingExerciseAttemptHistoryEntity> findAllByCourse(Long userId, Long courseId, List<LearningUnitStatus> statuses, Sort sort) {
+        return query(SELECT + COURSE_FILTER, sort, userId, courseId, statuses).getResultList();
+    }
+
+    /**
+     * Loads the user's history for one exercise with a write lock, for a transaction that records a
+     * graded attempt. The user's row is locked first, so two recordings are serialized even when no
+     * history exists yet and the first one is about to insert it.
+     */
+    public Optional<CodingExerciseAttemptHistoryEntity> findForUpdate(Long codingExerciseId, Long userId) {
+        entityManager.find(AppUserEntity.class, userId, LockModeType.PESSIMISTIC_WRITE);
+        return entityManager.createQuery(SELECT + EXERCISE_FILTER, CodingExerciseAttemptHistoryEntity.class)
+                .setParameter("userId", userId)
+                .setParameter("codingExerciseId", codingExerciseId)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultStream()
+                .findFirst();
+    }
+
+    public Page<CodingExerciseAttemptHistoryEntity> findAllByChapter(Long userId, Long chapterId, List<LearningUnitStatus> statuses, Pageable pageable) {
+        return page(CHAPTER_FILTER, pageable, userId, chapterId, statuses);
+    }
+
+    public Page<CodingExerciseAttemptHistoryEntity> findAllByCourse(Long userId, Long courseId, List<LearningUnitStatus> statuses, Pageable pageable) {
+        return page(COURSE_FILTER, pageable, userId, courseId, statuses);
+    }
+
+    private Page<CodingExerciseAttemptHistoryEntity> page(String filter, Pageable pageable, Long userId, Long scopeId, List<LearningUnitStatus> statuses) {
+        TypedQuery<CodingExerciseAttemptHistoryEntity> query = query(SELECT + filter, pageable.getSort(), userId, scopeId, statuses);
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        List<CodingExerciseAttemptHistoryEntity> content = query.getResultList();
+
+        Long total = entityManager.createQuery(COUNT + filter, Long.class)
+                .setParameter("userId", userId)
+                .setParameter("scopeId", scopeId)
+                .setParameter("statuses", statuses)
+                .getSingleResult();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private TypedQuery<CodingExerciseAttemptHistoryEntity> query(String jpql, Sort sort, Long userId, Long scopeId, List<LearningUnitStatus> statuses) {
+        // QueryUtils rejects anything that is not a plain property path, so the sort cannot inject JPQL
+        return entityManager.createQuery(QueryUtils.applySorting(jpql, sort, "e"), CodingExerciseAttemptHistoryEntity.class)
+                .setParameter("userId", userId)
+                .setParameter("scopeId", scopeId)
+                .setParameter("statuses", statuses);
+    }
+}
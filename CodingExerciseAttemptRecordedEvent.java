@@ -0,0 +1,22 @@
+package com.trainingmug.practiceplatform.user.service.impl.learningunit;
+
+import com.trainingmug.practiceplatform.user.entity.attempt.codingexercise.CodingExerciseAttemptEntity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published inside the transaction that saved a graded coding exercise attempt. The dashboard
+ * bookkeeping that hangs off an attempt listens for it once that transaction has committed.
+ */
+@Getter
+@AllArgsConstructor
+public class CodingExerciseAttemptRecordedEvent {
+    private final Long userId;
+    private final CodingExerciseSnapshot codingExercise;
+    private final CodingExerciseAttemptEntity attempt;
+    private final Long duration;
+    // First time this user passed the exercise
+    private final boolean firstPass;
+    // The code compiled and the cases were run
+    private final boolean evaluated;
+}
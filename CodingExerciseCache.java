@@ -0,0 +1,146 @@
+package com.trainingmug.practiceplatform.user.service.impl.learningunit;
+
+import com.trainingmug.practiceplatform.admin.exception.learningunit.CodingExerciseNotFoundException;
+import com.trainingmug.practiceplatform.admin.exception.learningunit.LanguageNotFoundException;
+import com.trainingmug.practiceplatform.admin.repository.learningunit.CodingExerciseRepository;
+import com.trainingmug.practiceplatform.admin.repository.learningunit.LanguageRepository;
+import com.trainingmug.practiceplatform.user.util.coderunner.CodingExerciseChangedEvent;
+import com.trainingmug.practiceplatform.user.util.coderunner.JudgeDataChangeListener;
+import com.trainingmug.practiceplatform.user.util.coderunner.LanguageChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-through cache of exercise and language snapshots for the submission path. Only immutable
+ * copies are kept, never entities, since entries are shared by every request thread. Entries are
+ * bounded in number, expire after a minute by default, and are dropped as soon as an admin change is
+ * committed on this node, see {@link JudgeDataChangeListener}. The time to live bounds how long
+ * other nodes keep serving an edited exercise.
+ */
+@Component
+@Slf4j
+public class CodingExerciseCache {
+    private final CodingExerciseRepository codingExerciseRepository;
+    private final LanguageRepository languageRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final BoundedCache<Long, CodingExerciseSnapshot> codingExercises;
+    private final BoundedCache<Long, LanguageSnapshot> languages;
+
+    public CodingExerciseCache(CodingExerciseRepository codingExerciseRepository,
+                               LanguageRepository languageRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${coderunner.exercise-cache.max-entries:500}") int maxEntries,
+                               @Value("${coderunner.exercise-cache.ttl-minutes:1}") long ttlMinutes) {
+        this.codingExerciseRepository = codingExerciseRepository;
+        this.languageRepository = languageRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.codingExercises = new BoundedCache<>(maxEntries, Duration.ofMinutes(ttlMinutes));
+        this.languages = new BoundedCache<>(maxEntries, Duration.ofMinutes(ttlMinutes));
+    }
+
+    public CodingExerciseSnapshot getCodingExercise(Long codingExerciseId) throws CodingExerciseNotFoundException {
+        Optional<CodingExerciseSnapshot> cached = codingExercises.get(codingExerciseId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        // The cases are lazy, snapshot them inside a transaction of our own
+        CodingExerciseSnapshot snapshot = readOnlyTransaction.execute(status -> codingExerciseRepository.findById(codingExerciseId)
+                .map(CodingExerciseSnapshot::of)
+                .orElse(null));
+        if (snapshot == null) {
+            throw new CodingExerciseNotFoundException("Coding exercise not found with id: " + codingExerciseId);
+        }
+        codingExercises.put(codingExerciseId, snapshot);
+        return snapshot;
+    }
+
+    public LanguageSnapshot getLanguage(Long languageId) throws LanguageNotFoundException {
+        Optional<LanguageSnapshot> cached = languages.get(languageId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        LanguageSnapshot language = languageRepository.findById(languageId)
+                .map(LanguageSnapshot::of)
+                .orElseThrow(() -> new LanguageNotFoundException(languageId));
+        languages.put(languageId, language);
+        return language;
+    }
+
+    @EventListener
+    public void onCodingExerciseChanged(CodingExerciseChangedEvent event) {
+        if (event.isAllExercises()) {
+            codingExercises.clear();
+            log.info("Dropped all cached coding exercise snapshots");
+        } else {
+            codingExercises.remove(event.getCodingExerciseId());
+            log.info("Dropped cached snapshot of coding exercise {}", event.getCodingExerciseId());
+        }
+    }
+
+    @EventListener
+    public void onLanguageChanged(LanguageChangedEvent event) {
+        languages.remove(event.getLanguageId());
+        log.info("Dropped cached language {}", event.getLanguageId());
+    }
+
+    /**
+     * Access-ordered LRU map with a time to live per entry.
+     */
+    private static final class BoundedCache<K, V> {
+        private final Duration ttl;
+        private final Map<K, Entry<V>> entries;
+
+        private BoundedCache(int maxEntries, Duration ttl) {
+            this.ttl = ttl;
+            this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        private synchronized Optional<V> get(K key) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (System.nanoTime() - entry.loadedAt > ttl.toNanos()) {
+                entries.remove(key);
+                return Optional.empty();
+            }
+            return Optional.of(entry.value);
+        }
+
+        private synchronized void put(K key, V value) {
+            entries.put(key, new Entry<>(value, System.nanoTime()));
+        }
+
+        private synchronized void remove(K key) {
+            entries.remove(key);
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
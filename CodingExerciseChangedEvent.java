@@ -0,0 +1,23 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when an admin edits a coding exercise or its code cases, so anything the judge keeps
+ * about that exercise is dropped.
+ */
+@Getter
+@AllArgsConstructor
+public class CodingExerciseChangedEvent {
+    // Null when the exercise is not known, every exercise is affected then
+    private final Long codingExerciseId;
+
+    public static CodingExerciseChangedEvent allExercises() {
+        return new CodingExerciseChangedEvent(null);
+    }
+
+    public boolean isAllExercises() {
+        return codingExerciseId == null;
+    }
+}
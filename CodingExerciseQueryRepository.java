@@ -0,0 +1,46 @@
+package com.trainingmug.practiceplatform.admin.repository.learningunit;
+
+import com.trainingmug.practiceplatform.admin.entity.learningunit.CodingExerciseEntity;
+import com.trainingmug.practiceplatform.enums.LearningUnitStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Coding exercise listings that need more than a derived query. The user's attempt history is
+ * excluded in the database, so pages are always full and the total matches the content.
+ */
+@Repository
+public class CodingExerciseQueryRepository {
+    private static final String UNATTEMPTED_FILTER = " from CodingExerciseEntity e"
+            + " where e.course.id = :courseId and e.learningUnitStatus in :statuses"
+            + " and not exists (select 1 from CodingExerciseAttemptHistoryEntity h"
+            + " where h.codingExercise = e and h.attemptedBy.id = :userId)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public Page<CodingExerciseEntity> findAllUnattemptedByCourse(Long userId, Long courseId, List<LearningUnitStatus> statuses, Pageable pageable) {
+        List<CodingExerciseEntity> content = entityManager
+                .createQuery(QueryUtils.applySorting("select e" + UNATTEMPTED_FILTER, pageable.getSort(), "e"), CodingExerciseEntity.class)
+                .setParameter("courseId", courseId)
+                .setParameter("statuses", statuses)
+                .setParameter("userId", userId)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        Long total = entityManager.createQuery("select count(e)" + UNATTEMPTED_FILTER, Long.class)
+                .setParameter("courseId", courseId)
+                .setParameter("statuses", statuses)
+                .setParameter("userId", userId)
+                .getSingleResult();
+        return new PageImpl<>(content, pageable, total);
+    }
+}
@@ -0,0 +1,51 @@
+package com.trainingmug.practiceplatform.user.service.impl.learningunit;
+
+import com.trainingmug.practiceplatform.admin.entity.learningunit.CodingExerciseEntity;
+import com.trainingmug.practiceplatform.user.util.coderunner.CaseSnapshot;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Read-only copy of what judging and grading need from a coding exercise, taken while the entity
+ * is still attached. Safe to share between threads and to keep after the persistence context closes.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class CodingExerciseSnapshot {
+    private final Long id;
+    private final String name;
+    private final Integer maxAttempts;
+    private final Integer marks;
+    private final Integer minimumPercentageToPass;
+    private final Integer totalRunCases;
+    private final Integer totalSubmitCases;
+    private final Long courseId;
+    // The exercise's own course, or the course of its chapter, used for course statistics
+    private final Long owningCourseId;
+    private final List<CaseSnapshot> runCases;
+    private final List<CaseSnapshot> submitCases;
+
+    public static CodingExerciseSnapshot of(CodingExerciseEntity codingExerciseEntity) {
+        Long courseId = codingExerciseEntity.getCourse() != null ? codingExerciseEntity.getCourse().getId() : null;
+        Long owningCourseId = courseId;
+        if (owningCourseId == null && codingExerciseEntity.getChapter() != null) {
+            owningCourseId = codingExerciseEntity.getChapter().getCourse().getId();
+        }
+        return new CodingExerciseSnapshot(
+                codingExerciseEntity.getId(),
+                codingExerciseEntity.getName(),
+                codingExerciseEntity.getMaxAttempts(),
+                codingExerciseEntity.getMarks(),
+                codingExerciseEntity.getMinimumPercentageToPass(),
+                codingExerciseEntity.getTotalRunCases(),
+                codingExerciseEntity.getTotalSubmitCases(),
+                courseId,
+                owningCourseId,
+                codingExerciseEntity.getRunCases().stream().map(CaseSnapshot::of).toList(),
+                codingExerciseEntity.getSubmitCases().stream().map(CaseSnapshot::of).toList()
+        );
+    }
+}
@@ -0,0 +1,101 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded LRU cache of compilation results keyed by language, compiler flags and the SHA-256 of
+ * the source. Identical resubmissions skip the compiler entirely, and compile errors are cached
+ * as well so a broken submission is not rebuilt on every retry.
+ */
+@Component
+@Slf4j
+public class CompilationCache {
+    private final long maxBytes;
+    private final LinkedHashMap<String, CompiledArtifact> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long sizeBytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public CompilationCache(@Value("${coderunner.compile-cache.max-bytes:268435456}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static String key(String language, String compilerFlags, String source) {
+        return language.toLowerCase() + "|" + compilerFlags + "|" + sha256(source);
+    }
+
+    public static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public synchronized Optional<CompiledArtifact> get(String key) {
+        CompiledArtifact artifact = entries.get(key);
+        if (artifact == null) {
+            missCount++;
+            return Optional.empty();
+        }
+        hitCount++;
+        return Optional.of(artifact);
+    }
+
+    public synchronized void put(String key, CompiledArtifact artifact) {
+        long artifactBytes = artifact.sizeBytes();
+        if (artifactBytes > maxBytes) {
+            return;
+        }
+        CompiledArtifact previous = entries.put(key, artifact);
+        if (previous != null) {
+            sizeBytes -= previous.sizeBytes();
+        }
+        sizeBytes += artifactBytes;
+
+        Iterator<Map.Entry<String, CompiledArtifact>> eldest = entries.entrySet().iterator();
+        while (sizeBytes > maxBytes && eldest.hasNext()) {
+            sizeBytes -= eldest.next().getValue().sizeBytes();
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+}
@@ -0,0 +1,40 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * What compiling a submission produced: Java bytecode, a native binary or marshalled Python code,
+ * or the compile error.
+ * Exactly one of the three is set.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class CompiledArtifact {
+    private final String compileError;
+    private final CompiledJava compiledJava;
+    private final byte[] binary;
+
+    public static CompiledArtifact error(String compileError) {
+        return new CompiledArtifact(compileError, null, null);
+    }
+
+    public static CompiledArtifact java(CompiledJava compiledJava) {
+        return new CompiledArtifact(null, compiledJava, null);
+    }
+
+    public static CompiledArtifact binary(byte[] binary) {
+        return new CompiledArtifact(null, null, binary);
+    }
+
+    public long sizeBytes() {
+        if (binary != null) {
+            return binary.length;
+        }
+        if (compiledJava != null) {
+            return compiledJava.getClasses().values().stream().mapToLong(bytecode -> bytecode.length).sum();
+        }
+        return compileError.length() * 2L;
+    }
+}
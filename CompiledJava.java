@@ -0,0 +1,49 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Result of an in-memory Java compilation: either the bytecode of every generated class keyed
+ * by binary name, or the compiler error output.
+ */
+@Getter
+public class CompiledJava {
+    private final Map<String, byte[]> classes;
+    private final String errors;
+
+    public CompiledJava(Map<String, byte[]> classes, String errors) {
+        this.classes = Map.copyOf(classes);
+        this.errors = errors;
+    }
+
+    public boolean isSuccess() {
+        return errors == null;
+    }
+
+    /**
+     * Every call returns a fresh loader so static state of the submission never leaks between runs.
+     */
+    public ClassLoader newClassLoader() {
+        return new BytecodeClassLoader(classes, CompiledJava.class.getClassLoader());
+    }
+
+    private static final class BytecodeClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        BytecodeClassLoader(Map<String, byte[]> classes, ClassLoader parent) {
+            super(parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytecode = classes.get(name);
+            if (bytecode == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiler profiles of the native languages under {@code coderunner.compilers}, e.g.
+ * {@code coderunner.compilers.cpp.standard=c++20}.
+ * <p>
+ * {@code precompiled-header} names a system header that is precompiled once at startup with the
+ * profile's own flags; submissions including it first skip parsing it. Leave it empty to disable.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "coderunner.compilers")
+public class CompilerProfileProperties {
+    private Profile c = new Profile("gcc", "c11", "-O2", "", List.of("-lm"));
+    private Profile cpp = new Profile("g++", "c++17", "-O2", "bits/stdc++.h", List.of());
+
+    @Getter
+    @Setter
+    public static class Profile {
+        private String command;
+        private String standard;
+        private String optimization;
+        private String precompiledHeader;
+        private List<String> flags = new ArrayList<>();
+        private List<String> linkFlags;
+
+        public Profile() {
+        }
+
+        Profile(String command, String standard, String optimization, String precompiledHeader, List<String> linkFlags) {
+            this.command = command;
+            this.standard = standard;
+            this.optimization = optimization;
+            this.precompiledHeader = precompiledHeader;
+            this.linkFlags = new ArrayList<>(linkFlags);
+        }
+
+        public boolean hasPrecompiledHeader() {
+            return precompiledHeader != null && !precompiledHeader.isBlank();
+        }
+
+        /**
+         * Flags that change the generated code. A precompiled header is only usable with the exact
+         * flags it was built with, so it is built from this list as well.
+         */
+        public List<String> codeGenerationFlags() {
+            List<String> codeGenerationFlags = new ArrayList<>();
+            codeGenerationFlags.add("-std=" + standard);
+            codeGenerationFlags.add(optimization);
+            codeGenerationFlags.addAll(flags);
+            return codeGenerationFlags;
+        }
+
+        public List<String> compileCommand(String source, String object, List<String> includeFlags) {
+            List<String> compileCommand = new ArrayList<>();
+            compileCommand.add(command);
+            compileCommand.addAll(includeFlags);
+            compileCommand.addAll(codeGenerationFlags());
+            compileCommand.addAll(List.of("-c", source, "-o", object));
+            return compileCommand;
+        }
+
+        public List<String> linkCommand(String object, String executable) {
+            List<String> linkCommand = new ArrayList<>(List.of(command, object, "-o", executable));
+            linkCommand.addAll(linkFlags);
+            return linkCommand;
+        }
+
+        @Override
+        public String toString() {
+            return command + " " + String.join(" ", codeGenerationFlags()) + " " + String.join(" ", linkFlags);
+        }
+    }
+}
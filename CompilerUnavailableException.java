@@ -0,0 +1,12 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+/**
+ * Thrown when the compiler gave no verdict on the code, for example because it ran out of time or
+ * was killed. The message is shown like a compile error, but the result is never cached, the same
+ * source may well compile on the next try.
+ */
+public class CompilerUnavailableException extends Exception {
+    public CompilerUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,302 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import com.trainingmug.practiceplatform.user.exception.SubmissionQueueFullException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Replays a corpus of submissions against the judge at rising arrival rates and reports throughput,
+ * latency percentiles per phase and the first rate the judge could not keep up with. Use it to size
+ * the worker pools before a contest and to check that a concurrency change actually scales.
+ * <p>
+ * Usage: {@code ContestLoadGenerator [--corpus dir] [--rates 1,2,4,8] [--duration-s 30] [--workers n]
+ * [--judge-threads n] [--queue-capacity n]}
+ * <p>
+ * A corpus directory holds practice runs as {@code run/<name>.<java|py|c|cpp>}, graded submits as
+ * {@code submit/<name>.<ext>} and the exercise's cases as {@code cases/<n>.in} and {@code cases/<n>.out}.
+ * Runs get the first two cases, like the exercise's run cases, and submits get all of them. Without a
+ * corpus a built-in mix of accepted, wrong, non-compiling and never-ending programs is used.
+ * <p>
+ * Submissions are judged the way {@code executeUserCode} judges them. Every replay gets a unique
+ * source, so the compilation cache only helps as much as it would in a real contest. Recording the
+ * attempt needs the database and is not part of the replay.
+ */
+final class ContestLoadGenerator {
+    private static final ExecutionLimits LIMITS = new ExecutionLimits(2000, 256, 1024 * 1024);
+    private static final int RUN_CASE_COUNT = 2;
+    private static final long DRAIN_TIMEOUT_MINUTES = 10;
+    private static final AtomicLong REPLAY_COUNT = new AtomicLong();
+
+    private ContestLoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        List<Submission> corpus = options.containsKey("corpus") ? loadCorpus(Path.of(options.get("corpus"))) : builtInCorpus();
+        int[] rates = Arrays.stream(options.getOrDefault("rates", "1,2,4,8,16").split(",")).mapToInt(Integer::parseInt).toArray();
+        long durationMillis = Long.parseLong(options.getOrDefault("duration-s", "30")) * 1000;
+        int processors = Runtime.getRuntime().availableProcessors();
+        int workers = Integer.parseInt(options.getOrDefault("workers", String.valueOf(processors)));
+        int judgeThreads = Integer.parseInt(options.getOrDefault("judge-threads", String.valueOf(processors)));
+        int queueCapacity = Integer.parseInt(options.getOrDefault("queue-capacity", "100"));
+
+        StandaloneJudge standaloneJudge = new StandaloneJudge(workers);
+        SubmissionJudge submissionJudge = standaloneJudge.judge(judgeThreads, queueCapacity);
+        try {
+            System.out.printf("Replaying %d submissions with %d workers per pool and %d judge threads%n", corpus.size(), workers, judgeThreads);
+            System.out.println("rate/s  done/s  done  rejected  failed  | total p50/p95/p99 ms | wait p50/p95/p99 ms | compile p50/p95/p99 ms | run p50/p95/p99 ms");
+            Integer saturatedAt = null;
+            for (int rate : rates) {
+                StepResult step = runStep(submissionJudge, corpus, rate, durationMillis);
+                System.out.println(step);
+                if (saturatedAt == null && step.isSaturated()) {
+                    saturatedAt = rate;
+                }
+            }
+            System.out.println(saturatedAt == null
+                    ? "The judge kept up with every rate tried"
+                    : "Saturated at " + saturatedAt + " submissions/s: the judge completed less than 90% of the offered load or turned submissions away");
+        } finally {
+            submissionJudge.destroy();
+            standaloneJudge.destroy();
+        }
+    }
+
+    private static StepResult runStep(SubmissionJudge submissionJudge, List<Submission> corpus, int rate, long durationMillis) throws InterruptedException {
+        AtomicInteger clientCount = new AtomicInteger();
+        ExecutorService clients = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "load-client-" + clientCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Sample> samples = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Random random = new Random(rate);
+
+        // Open loop: arrivals follow a Poisson process whatever the judge's backlog, like contestants do
+        long start = System.nanoTime();
+        long nextArrival = start;
+        while (nextArrival - start < durationMillis * 1_000_000) {
+            long sleepNanos = nextArrival - System.nanoTime();
+            if (sleepNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            }
+            Submission submission = corpus.get(random.nextInt(corpus.size()));
+            long arrivedAt = System.nanoTime();
+            clients.execute(() -> {
+                try {
+                    JudgeResult judgeResult = submissionJudge.judge(submission.toJudgeRequest());
+                    samples.add(new Sample(System.nanoTime() - arrivedAt, judgeResult));
+                } catch (SubmissionQueueFullException e) {
+                    rejected.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                }
+            });
+            nextArrival += (long) (-Math.log(1 - random.nextDouble()) / rate * 1_000_000_000L);
+        }
+        clients.shutdown();
+        clients.awaitTermination(DRAIN_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        long elapsedNanos = System.nanoTime() - start;
+        return new StepResult(rate, elapsedNanos, new ArrayList<>(samples), rejected.get(), failed.get());
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option but got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static List<Submission> loadCorpus(Path directory) throws IOException {
+        List<CaseSnapshot> codeCases = new ArrayList<>();
+        try (Stream<Path> inputs = Files.list(directory.resolve("cases"))) {
+            List<Path> inputFiles = inputs.filter(path -> path.toString().endsWith(".in"))
+                    .sorted(Comparator.comparing(path -> Long.parseLong(path.getFileName().toString().replace(".in", ""))))
+                    .toList();
+            for (Path inputFile : inputFiles) {
+                Path outputFile = Path.of(inputFile.toString().replace(".in", ".out"));
+                codeCases.add(codeCase(codeCases.size() + 1, Files.readString(inputFile), Files.readString(outputFile).trim()));
+            }
+        }
+
+        List<Submission> corpus = new ArrayList<>();
+        for (String kind : List.of("run", "submit")) {
+            Path kindDirectory = directory.resolve(kind);
+            if (!Files.isDirectory(kindDirectory)) {
+                continue;
+            }
+            List<CaseSnapshot> kindCases = kind.equals("run") ? codeCases.subList(0, Math.min(RUN_CASE_COUNT, codeCases.size())) : codeCases;
+            try (Stream<Path> sources = Files.list(kindDirectory)) {
+                for (Path source : sources.sorted().toList()) {
+                    String language = languageOf(source.getFileName().toString());
+                    if (language != null) {
+                        corpus.add(new Submission(language, Files.readString(source, StandardCharsets.UTF_8), kindCases));
+                    }
+                }
+            }
+        }
+        if (corpus.isEmpty()) {
+            throw new IllegalArgumentException("No submissions found under " + directory);
+        }
+        return corpus;
+    }
+
+    private static String languageOf(String fileName) {
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+        return switch (extension) {
+            case "java" -> "java";
+            case "py" -> "python";
+            case "c" -> "c";
+            case "cpp", "cc" -> "cpp";
+            default -> null;
+        };
+    }
+
+    // Sum of two numbers; mostly correct answers, with the failures a contest always brings
+    private static List<Submission> builtInCorpus() {
+        List<CaseSnapshot> codeCases = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 1; i <= 8; i++) {
+            int a = random.nextInt(1000);
+            int b = random.nextInt(1000);
+            codeCases.add(codeCase(i, a + " " + b, String.valueOf(a + b)));
+        }
+        Map<String, List<String>> programs = Map.of(
+                "java", List.of(
+                        "import java.util.*; public class Solution { public static void main(String[] args) { Scanner sc = new Scanner(System.in); System.out.println(sc.nextInt() + sc.nextInt()); } }",
+                        "import java.util.*; public class Solution { public static void main(String[] args) { Scanner sc = new Scanner(System.in); System.out.println(sc.nextInt() - sc.nextInt()); } }",
+                        "public class Solution { public static void main(String[] args) { System.out.println(missing); } }",
+                        "public class Solution { public static void main(String[] args) { while (true) { } } }"),
+                "python", List.of(
+                        "a = int(input())\nb = int(input())\nprint(a + b)\n",
+                        "a = int(input())\nb = int(input())\nprint(a - b)\n",
+                        "print(a +\n",
+                        "while True:\n    pass\n"),
+                "c", List.of(
+                        "#include <stdio.h>\nint main(void) { int a, b; if (scanf(\"%d %d\", &a, &b) != 2) return 1; printf(\"%d\\n\", a + b); return 0; }\n",
+                        "#include <stdio.h>\nint main(void) { int a, b; if (scanf(\"%d %d\", &a, &b) != 2) return 1; printf(\"%d\\n\", a - b); return 0; }\n",
+                        "int main(void) { return missing; }\n",
+                        "int main(void) { for (;;) { } }\n"),
+                "cpp", List.of(
+                        "#include <bits/stdc++.h>\nusing namespace std;\nint main() { int a, b; cin >> a >> b; cout << a + b << endl; }\n",
+                        "#include <bits/stdc++.h>\nusing namespace std;\nint main() { int a, b; cin >> a >> b; cout << a - b << endl; }\n",
+                        "int main() { return missing; }\n",
+                        "int main() { for (;;) { } }\n")
+        );
+        // Accepted, wrong answer, compile error, time limit in a 14:3:2:1 mix
+        int[] weights = {14, 3, 2, 1};
+        List<Submission> corpus = new ArrayList<>();
+        for (Map.Entry<String, List<String>> language : programs.entrySet()) {
+            for (int program = 0; program < weights.length; program++) {
+                for (int i = 0; i < weights[program]; i++) {
+                    List<CaseSnapshot> kindCases = i % 2 == 0 ? codeCases.subList(0, RUN_CASE_COUNT) : codeCases;
+                    corpus.add(new Submission(language.getKey(), language.getValue().get(program), kindCases));
+                }
+            }
+        }
+        return corpus;
+    }
+
+    private static CaseSnapshot codeCase(long id, String input, String output) {
+        return new CaseSnapshot(id, input, output);
+    }
+
+    private static final class Submission {
+        private final String language;
+        private final String code;
+        private final List<CaseSnapshot> codeCases;
+
+        private Submission(String language, String code, List<CaseSnapshot> codeCases) {
+            this.language = language;
+            this.code = code;
+            this.codeCases = List.copyOf(codeCases);
+        }
+
+        private JudgeRequest toJudgeRequest() {
+            // A trailing comment makes every replay a new source for the compilation cache
+            String comment = language.equals("python") ? "\n# replay " : "\n// replay ";
+            return JudgeRequest.builder()
+                    .codingExerciseId(1L)
+                    .language(language)
+                    .code(code + comment + REPLAY_COUNT.incrementAndGet() + "\n")
+                    .codeCases(codeCases)
+                    .limits(LIMITS)
+                    .build();
+        }
+    }
+
+    private static final class Sample {
+        private final long totalMillis;
+        private final long compileMillis;
+        private final long runMillis;
+
+        private Sample(long totalNanos, JudgeResult judgeResult) {
+            this.totalMillis = totalNanos / 1_000_000;
+            this.compileMillis = judgeResult.getCompileTime();
+            this.runMillis = judgeResult.getRunTime();
+        }
+
+        private long waitMillis() {
+            return Math.max(0, totalMillis - compileMillis - runMillis);
+        }
+    }
+
+    private static final class StepResult {
+        private final int rate;
+        private final double completedPerSecond;
+        private final List<Sample> samples;
+        private final int rejected;
+        private final int failed;
+
+        private StepResult(int rate, long elapsedNanos, List<Sample> samples, int rejected, int failed) {
+            this.rate = rate;
+            this.completedPerSecond = samples.size() / (elapsedNanos / 1e9);
+            this.samples = samples;
+            this.rejected = rejected;
+            this.failed = failed;
+        }
+
+        // The step's elapsed time includes draining the backlog, so a judge that fell behind shows a lower rate
+        private boolean isSaturated() {
+            return rejected > 0 || completedPerSecond < rate * 0.9;
+        }
+
+        private String percentiles(ToLongFunction<Sample> phase) {
+            long[] values = samples.stream().mapToLong(phase).sorted().toArray();
+            if (values.length == 0) {
+                return "-/-/-";
+            }
+            return percentile(values, 50) + "/" + percentile(values, 95) + "/" + percentile(values, 99);
+        }
+
+        private static long percentile(long[] sorted, int percentile) {
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, index)];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%6d  %6.2f  %4d  %8d  %6d  | %19s | %19s | %22s | %17s",
+                    rate, completedPerSecond, samples.size(), rejected, failed,
+                    percentiles(sample -> sample.totalMillis),
+                    percentiles(Sample::waitMillis),
+                    percentiles(sample -> sample.compileMillis),
+                    percentiles(sample -> sample.runMillis));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.trainingmug.practiceplatform.user.repository.enroll;
+
+import com.trainingmug.practiceplatform.enums.LearningProgressStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public class CourseEnrollQueryRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Whether the user has an enrollment in the course with one of the given statuses. Reads at most
+     * one id, served by the (user, course) index on the enrollment table.
+     */
+    public boolean existsByUserAndCourseAndProgressStatusIn(Long userId, Long courseId, List<LearningProgressStatus> progressStatuses) {
+        return !entityManager.createQuery(
+                        "select c.id from CourseEnrollEntity c"
+                                + " where c.user.id = :userId and c.course.id = :courseId and c.progressStatus in :progressStatuses",
+                        Long.class)
+                .setParameter("userId", userId)
+                .setParameter("courseId", courseId)
+                .setParameter("progressStatuses", progressStatuses)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+}
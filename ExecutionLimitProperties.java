@@ -0,0 +1,70 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Default run limits under {@code coderunner.limits}, with optional overrides per coding exercise id,
+ * e.g. {@code coderunner.limits.exercises.42.time-ms=5000}.
+ * <p>
+ * Java workers are started ahead of time, so their heap is always sized from the default
+ * {@code memory-mb}; per-exercise memory overrides apply to native runs only.
+ * <p>
+ * {@code fail-fast} stops judging submit cases at the first case, in case order, after which the
+ * pass threshold can no longer be reached. The later cases are reported as skipped and count as
+ * failed, which lowers partial scores, but the same code always gets the same score.
+ * <p>
+ * {@code comparison} picks how outputs are matched, see {@link OutputComparator.Mode}, with
+ * {@code float-epsilon} as the tolerance of {@code FLOAT}.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "coderunner.limits")
+public class ExecutionLimitProperties {
+    private long timeMs = 2000;
+    private long memoryMb = 256;
+    private long outputBytes = 1024 * 1024;
+    private boolean failFast = false;
+    private OutputComparator.Mode comparison = OutputComparator.Mode.EXACT;
+    private double floatEpsilon = 1e-6;
+    private Map<Long, ExerciseLimits> exercises = new HashMap<>();
+
+    public ExecutionLimits forExercise(Long codingExerciseId) {
+        ExerciseLimits overrides = exercises.getOrDefault(codingExerciseId, new ExerciseLimits());
+        return new ExecutionLimits(
+                overrides.getTimeMs() != null ? overrides.getTimeMs() : timeMs,
+                overrides.getMemoryMb() != null ? overrides.getMemoryMb() : memoryMb,
+                overrides.getOutputBytes() != null ? overrides.getOutputBytes() : outputBytes
+        );
+    }
+
+    public boolean isFailFast(Long codingExerciseId) {
+        ExerciseLimits overrides = exercises.get(codingExerciseId);
+        return overrides != null && overrides.getFailFast() != null ? overrides.getFailFast() : failFast;
+    }
+
+    public OutputComparator comparatorFor(Long codingExerciseId) {
+        ExerciseLimits overrides = exercises.getOrDefault(codingExerciseId, new ExerciseLimits());
+        return new OutputComparator(
+                overrides.getComparison() != null ? overrides.getComparison() : comparison,
+                overrides.getFloatEpsilon() != null ? overrides.getFloatEpsilon() : floatEpsilon
+        );
+    }
+
+    @Getter
+    @Setter
+    public static class ExerciseLimits {
+        private Long timeMs;
+        private Long memoryMb;
+        private Long outputBytes;
+        private Boolean failFast;
+        private OutputComparator.Mode comparison;
+        private Double floatEpsilon;
+    }
+}
@@ -0,0 +1,22 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Resource limits applied to every run of a submission.
+ */
+@Getter
+@AllArgsConstructor
+public class ExecutionLimits {
+    private final long timeLimitMillis;
+    private final long memoryLimitMb;
+    private final long outputLimitBytes;
+
+    /**
+     * Whole seconds for {@code RLIMIT_CPU}, rounded up so the CPU limit never fires before the wall clock.
+     */
+    public long cpuLimitSeconds() {
+        return (timeLimitMillis + 999) / 1000;
+    }
+}
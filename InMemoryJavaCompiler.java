@@ -0,0 +1,118 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles Java source entirely in memory. The system compiler is looked up once and every
+ * worker thread keeps its own warm {@link StandardJavaFileManager}, so a submission never
+ * touches the working directory and never pays for javac bootstrap again.
+ */
+@Slf4j
+public final class InMemoryJavaCompiler {
+
+    private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+
+    static final List<String> OPTIONS = List.of("-proc:none", "-implicit:none", "-Xlint:none");
+
+    // StandardJavaFileManager is not thread-safe, so each thread reuses its own warm instance
+    private static final ThreadLocal<StandardJavaFileManager> STANDARD_FILE_MANAGER = ThreadLocal.withInitial(
+            () -> COMPILER.getStandardFileManager(null, null, StandardCharsets.UTF_8)
+    );
+
+    private InMemoryJavaCompiler() {
+    }
+
+    public static CompiledJava compile(String className, String code) {
+        if (COMPILER == null) {
+            throw new IllegalStateException("No system Java compiler available, run the service on a JDK");
+        }
+        MemoryFileManager fileManager = new MemoryFileManager(STANDARD_FILE_MANAGER.get());
+        StringWriter errorWriter = new StringWriter();
+
+        JavaCompiler.CompilationTask task = COMPILER.getTask(
+                errorWriter,
+                fileManager,
+                null,
+                OPTIONS,
+                null,
+                List.of(new SourceFile(className, code))
+        );
+
+        if (!task.call()) {
+            return new CompiledJava(Map.of(), errorWriter.toString());
+        }
+        log.debug("Compiled {} class(es) in memory for {}", fileManager.classes.size(), className);
+        return new CompiledJava(fileManager.bytecode(), null);
+    }
+
+    private static final class SourceFile extends SimpleJavaFileObject {
+        private final String fileName;
+        private final String code;
+
+        SourceFile(String className, String code) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.fileName = className.replace('.', '/') + Kind.SOURCE.extension;
+            this.code = code;
+        }
+
+        // Keep diagnostics in the familiar "Solution.java:3: error: ..." shape
+        @Override
+        public String getName() {
+            return fileName;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    private static final class ClassFile extends SimpleJavaFileObject {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ClassFile(String className) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+    }
+
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, ClassFile> classes = new HashMap<>();
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            ClassFile classFile = new ClassFile(className);
+            classes.put(className, classFile);
+            return classFile;
+        }
+
+        // The shared standard file manager must stay open for the next submission
+        @Override
+        public void close() {
+        }
+
+        Map<String, byte[]> bytecode() {
+            Map<String, byte[]> bytecode = new HashMap<>();
+            classes.forEach((name, classFile) -> bytecode.put(name, classFile.bytes.toByteArray()));
+            return bytecode;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Java is compiled in memory and run in the forked worker JVMs of {@link JavaWorkerPool}.
+ */
+@Component
+@RequiredArgsConstructor
+public class JavaLanguageRunner implements LanguageRunner {
+    private static final String MAIN_CLASS = "Solution";
+
+    private final CodeRunService codeRunService;
+
+    @Override
+    public String getLanguage() {
+        return "java";
+    }
+
+    @Override
+    public String getCompilerFlags() {
+        return String.join(" ", InMemoryJavaCompiler.OPTIONS);
+    }
+
+    @Override
+    public CompiledArtifact compile(Workspace workspace, String code) {
+        CompiledJava compiledJava = codeRunService.compileJavaCode(code);
+        return compiledJava.isSuccess() ? CompiledArtifact.java(compiledJava) : CompiledArtifact.error(compiledJava.getErrors());
+    }
+
+    @Override
+    public String execute(Workspace workspace, CompiledArtifact artifact, String input, ExecutionLimits limits) throws Exception {
+        return codeRunService.runJavaClass(artifact.getCompiledJava(), MAIN_CLASS, input, limits);
+    }
+}
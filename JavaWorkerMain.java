@@ -0,0 +1,266 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Entry point of a forked Java worker. The worker owns its own stdio, so it can point
+ * System.in/System.out at the job without disturbing anything else. Jobs arrive framed on a
+ * Unix domain socket given as the only argument, and results leave framed on the same socket,
+ * see {@link JavaWorkerProcess} for the other end. The process's fd 0 and 1 are /dev/null, so a
+ * program that opens {@link FileDescriptor#in} or {@link FileDescriptor#out} itself for fast IO
+ * reads nothing and writes nowhere, and can never touch the protocol.
+ * <p>
+ * System properties, the default locales and the default time zone are put back after every job.
+ * A job that leaves threads running is reported as tainted and the parent retires the worker,
+ * so nothing of one user's program outlives its job.
+ * <p>
+ * A job either carries the program's classes or, with a class count of {@link #SAME_PROGRAM}, reuses
+ * the ones of the previous job, so the cases of one submission only ship its bytecode once. Each
+ * job still defines the classes in a fresh loader, static state never leaks from one case to the next.
+ * <p>
+ * This class only depends on the JDK because it is copied onto the worker classpath on its own.
+ */
+public final class JavaWorkerMain {
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_RUNTIME_ERROR = 1;
+    // The program called System.exit, its output is valid but the worker is gone
+    public static final int STATUS_EXITED = 2;
+    public static final int STATUS_INTERNAL_ERROR = 3;
+    public static final int STATUS_OUTPUT_LIMIT = 4;
+    public static final int STATUS_MEMORY_LIMIT = 5;
+    public static final int SAME_PROGRAM = -1;
+
+    private static final Object RESPONSE_LOCK = new Object();
+    private static DataOutputStream protocolOut;
+    private static CappedOutputStream jobOutput;
+    private static PrintStream jobStdout;
+    private static long jobStart;
+    private static boolean jobActive;
+    private static Properties baselineProperties;
+    private static Locale baselineLocale;
+    private static Locale baselineDisplayLocale;
+    private static Locale baselineFormatLocale;
+    private static TimeZone baselineTimeZone;
+
+    private JavaWorkerMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        SocketChannel protocolChannel = SocketChannel.open(UnixDomainSocketAddress.of(args[0]));
+        protocolOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(protocolChannel)));
+        DataInputStream protocolIn = new DataInputStream(new BufferedInputStream(Channels.newInputStream(protocolChannel)));
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> respond(STATUS_EXITED, "", "Program called System.exit", true)));
+        captureGlobalState();
+
+        Map<String, byte[]> classes = Map.of();
+        while (true) {
+            String className;
+            byte[] input;
+            long outputLimit;
+            try {
+                int classCount = protocolIn.readInt();
+                if (classCount != SAME_PROGRAM) {
+                    classes = new HashMap<>();
+                    for (int i = 0; i < classCount; i++) {
+                        classes.put(readString(protocolIn), readBytes(protocolIn));
+                    }
+                }
+                className = readString(protocolIn);
+                input = readBytes(protocolIn);
+                outputLimit = protocolIn.readLong();
+            } catch (EOFException e) {
+                // Parent closed the pipe, shut down quietly
+                return;
+            }
+            runJob(classes, className, input, outputLimit);
+        }
+    }
+
+    private static void runJob(Map<String, byte[]> classes, String className, byte[] input, long outputLimit) {
+        Set<Thread> threadsBefore = liveThreads();
+        CappedOutputStream output = new CappedOutputStream(outputLimit);
+        PrintStream stdout = new PrintStream(output);
+        System.setIn(new ByteArrayInputStream(input));
+        System.setOut(stdout);
+        synchronized (RESPONSE_LOCK) {
+            jobOutput = output;
+            jobStdout = stdout;
+            jobStart = System.nanoTime();
+            jobActive = true;
+        }
+
+        int status;
+        String errorType = "";
+        String errorMessage = "";
+        try {
+            Class<?> solutionClass = Class.forName(className, true, new BytecodeClassLoader(classes));
+            Method mainMethod = solutionClass.getDeclaredMethod("main", String[].class);
+            mainMethod.invoke(null, (Object) new String[]{});
+            // The program may have caught the limit error itself, the stream still knows
+            status = output.exceeded ? STATUS_OUTPUT_LIMIT : STATUS_OK;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (output.exceeded) {
+                status = STATUS_OUTPUT_LIMIT;
+            } else {
+                status = cause instanceof OutOfMemoryError ? STATUS_MEMORY_LIMIT : STATUS_RUNTIME_ERROR;
+                errorType = cause.getClass().getName();
+                errorMessage = String.valueOf(cause.getMessage());
+            }
+        } catch (ReflectiveOperationException | LinkageError e) {
+            status = STATUS_INTERNAL_ERROR;
+            errorType = e.getClass().getName();
+            errorMessage = String.valueOf(e.getMessage());
+        }
+        boolean tainted = leftThreadsRunning(threadsBefore);
+        restoreGlobalState();
+        respond(status, errorType, errorMessage, tainted);
+    }
+
+    private static void captureGlobalState() {
+        baselineProperties = new Properties();
+        baselineProperties.putAll(System.getProperties());
+        baselineLocale = Locale.getDefault();
+        baselineDisplayLocale = Locale.getDefault(Locale.Category.DISPLAY);
+        baselineFormatLocale = Locale.getDefault(Locale.Category.FORMAT);
+        baselineTimeZone = TimeZone.getDefault();
+    }
+
+    private static void restoreGlobalState() {
+        if (!System.getProperties().equals(baselineProperties)) {
+            Properties restored = new Properties();
+            restored.putAll(baselineProperties);
+            System.setProperties(restored);
+        }
+        Locale.setDefault(baselineLocale);
+        Locale.setDefault(Locale.Category.DISPLAY, baselineDisplayLocale);
+        Locale.setDefault(Locale.Category.FORMAT, baselineFormatLocale);
+        // getDefault hands out copies, but setDefault keeps the instance it is given
+        TimeZone.setDefault((TimeZone) baselineTimeZone.clone());
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    private static Set<Thread> liveThreads() {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        Thread[] threads = new Thread[root.activeCount() + 16];
+        int count = root.enumerate(threads, true);
+        return new HashSet<>(Arrays.asList(threads).subList(0, count));
+    }
+
+    private static boolean leftThreadsRunning(Set<Thread> threadsBefore) {
+        for (Thread thread : liveThreads()) {
+            // Idle common pool workers are shared JDK infrastructure, parallel streams start them on first use
+            boolean commonPoolWorker = thread instanceof ForkJoinWorkerThread worker && worker.getPool() == ForkJoinPool.commonPool();
+            if (!threadsBefore.contains(thread) && thread.isAlive() && !commonPoolWorker) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void respond(int status, String errorType, String errorMessage, boolean tainted) {
+        synchronized (RESPONSE_LOCK) {
+            if (!jobActive) {
+                return;
+            }
+            jobActive = false;
+            try {
+                jobStdout.flush();
+                protocolOut.writeInt(status);
+                protocolOut.writeLong(System.nanoTime() - jobStart);
+                writeBytes(protocolOut, jobOutput.toByteArray());
+                writeString(protocolOut, errorType);
+                writeString(protocolOut, errorMessage);
+                protocolOut.writeBoolean(tainted);
+                protocolOut.flush();
+            } catch (IOException e) {
+                // Parent is gone, nothing left to report to
+                Runtime.getRuntime().halt(1);
+            }
+        }
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Job stdout that stops the program once it has printed more than the output limit.
+     */
+    static final class CappedOutputStream extends ByteArrayOutputStream {
+        private final long limit;
+        private boolean exceeded;
+
+        CappedOutputStream(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (exceeded || count + len > limit) {
+                exceeded = true;
+                // PrintStream swallows IOExceptions, an Error is the only thing that reaches past it
+                throw new OutputLimitExceeded();
+            }
+            super.write(b, off, len);
+        }
+    }
+
+    static final class OutputLimitExceeded extends Error {
+        OutputLimitExceeded() {
+            super("Output limit exceeded", null, false, false);
+        }
+    }
+
+    static final class BytecodeClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        BytecodeClassLoader(Map<String, byte[]> classes) {
+            // Submissions only see the JDK, not the worker itself
+            super(ClassLoader.getPlatformClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytecode = classes.get(name);
+            if (bytecode == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of pre-started, pre-warmed child JVMs that run compiled Java submissions. Every worker
+ * has its own stdio, so Java runs go fully parallel and never touch the service's System.out.
+ * Dead workers are replaced in the background, keeping JVM startup off the request path.
+ */
+@Component
+@Slf4j
+public class JavaWorkerPool implements DisposableBean {
+    private static final String[] WORKER_CLASSES = {
+            "JavaWorkerMain",
+            "JavaWorkerMain$BytecodeClassLoader",
+            "JavaWorkerMain$CappedOutputStream",
+            "JavaWorkerMain$OutputLimitExceeded"
+    };
+
+    private static final ExecutionLimits WARM_UP_LIMITS = new ExecutionLimits(30_000, 0, 1024 * 1024);
+
+    private static final String WARM_UP_CODE = """
+            import java.util.*;
+
+            public class Solution {
+                public static void main(String[] args) {
+                    Scanner sc = new Scanner(System.in);
+                    int n = sc.nextInt();
+                    StringBuilder sb = new StringBuilder();
+                    for (int i = 0; i < n; i++) {
+                        sb.append(i * 31 % 7).append(' ');
+                    }
+                    System.out.println(sb);
+                }
+            }
+            """;
+
+    private final BlockingQueue<JavaWorkerProcess> idleWorkers = new LinkedBlockingQueue<>();
+    private final List<JavaWorkerProcess> allWorkers = new CopyOnWriteArrayList<>();
+    private final AtomicLong exhaustedCount = new AtomicLong();
+    private final AtomicLong workerIds = new AtomicLong();
+    private final ExecutorService respawner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "java-worker-respawn");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Workspace workerClasspath;
+    private final List<String> command;
+    private final CompiledJava warmUpClasses;
+    private final long acquireTimeoutMillis;
+
+    public JavaWorkerPool(ExecutionLimitProperties limitProperties,
+                          @Value("${coderunner.java-workers:0}") int poolSize,
+                          @Value("${coderunner.java-worker.acquire-timeout-ms:30000}") long acquireTimeoutMillis) throws IOException {
+        int workers = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.workerClasspath = Workspace.create();
+        copyWorkerClasses();
+        this.command = List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-XX:+UseSerialGC",
+                "-Xmx" + limitProperties.getMemoryMb() + "m",
+                "-Xshare:auto",
+                "-cp", workerClasspath.getDirectory().toString(),
+                JavaWorkerMain.class.getName()
+        );
+        this.warmUpClasses = InMemoryJavaCompiler.compile("Solution", WARM_UP_CODE);
+
+        // Start every JVM first so they boot in parallel, then warm them one by one
+        List<JavaWorkerProcess> started = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            started.add(startWorker());
+        }
+        for (JavaWorkerProcess worker : started) {
+            warmUp(worker);
+            idleWorkers.offer(worker);
+        }
+        log.info("Java worker pool started with {} warm workers", workers);
+    }
+
+    public JavaWorkerResult execute(CompiledJava compiledJava, String className, String input, ExecutionLimits limits) throws Exception {
+        JavaWorkerProcess worker = takeWorker(compiledJava);
+        if (worker == null) {
+            exhaustedCount.incrementAndGet();
+            throw new Exception("No Java worker available after " + acquireTimeoutMillis + " ms");
+        }
+        JavaWorkerResult result;
+        try {
+            result = worker.execute(compiledJava, className, input, limits);
+        } catch (LimitExceededException e) {
+            replace(worker);
+            throw e;
+        } catch (IOException e) {
+            replace(worker);
+            throw new Exception("Java worker crashed during execution: " + e.getMessage(), e);
+        }
+        // A worker that ran out of heap or still runs the program's threads may be left in a bad state, start a clean one
+        if (result.getStatus() == JavaWorkerMain.STATUS_EXITED
+                || result.getStatus() == JavaWorkerMain.STATUS_MEMORY_LIMIT
+                || result.isTainted()
+                || !worker.isAlive()) {
+            replace(worker);
+        } else {
+            idleWorkers.offer(worker);
+        }
+        return result;
+    }
+
+    private JavaWorkerProcess takeWorker(CompiledJava compiledJava) throws InterruptedException {
+        // Prefer a worker that already holds this submission, the other cases then skip sending the classes
+        for (JavaWorkerProcess idle : idleWorkers) {
+            if (idle.hasLoaded(compiledJava) && idleWorkers.remove(idle)) {
+                return idle;
+            }
+        }
+        return idleWorkers.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int getWorkerCount() {
+        return allWorkers.size();
+    }
+
+    public int getIdleWorkerCount() {
+        return idleWorkers.size();
+    }
+
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+
+    private JavaWorkerProcess startWorker() throws IOException {
+        JavaWorkerProcess worker = new JavaWorkerProcess(command, workerClasspath.resolve("worker-" + workerIds.incrementAndGet() + ".sock"));
+        allWorkers.add(worker);
+        return worker;
+    }
+
+    private void warmUp(JavaWorkerProcess worker) throws IOException {
+        try {
+            for (int i = 0; i < 3; i++) {
+                worker.execute(warmUpClasses, "Solution", "1000", WARM_UP_LIMITS);
+            }
+        } catch (LimitExceededException e) {
+            throw new IOException("Java worker did not finish warming up", e);
+        }
+    }
+
+    private void replace(JavaWorkerProcess worker) {
+        worker.destroy();
+        allWorkers.remove(worker);
+        respawner.execute(() -> {
+            try {
+                JavaWorkerProcess replacement = startWorker();
+                warmUp(replacement);
+                idleWorkers.offer(replacement);
+            } catch (IOException e) {
+                log.error("Could not start replacement Java worker: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    private void copyWorkerClasses() throws IOException {
+        Path packageDir = workerClasspath.resolve(JavaWorkerMain.class.getPackageName().replace('.', '/'));
+        Files.createDirectories(packageDir);
+        for (String workerClass : WORKER_CLASSES) {
+            try (InputStream in = JavaWorkerMain.class.getResourceAsStream(workerClass + ".class")) {
+                if (in == null) {
+                    throw new IOException("Worker class not found on classpath: " + workerClass);
+                }
+                Files.copy(in, packageDir.resolve(workerClass + ".class"));
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // Let an in-flight respawn finish before its classpath disappears
+        respawner.shutdownNow();
+        respawner.awaitTermination(WARM_UP_LIMITS.getTimeLimitMillis(), TimeUnit.MILLISECONDS);
+        allWorkers.forEach(JavaWorkerProcess::destroy);
+        workerClasspath.close();
+    }
+}
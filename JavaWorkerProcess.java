@@ -0,0 +1,112 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parent side of one forked Java worker. Not thread-safe: {@link JavaWorkerPool} hands a worker
+ * to a single caller at a time.
+ */
+class JavaWorkerProcess {
+    // A cold JVM boots in well under a second, this only catches one that never comes up
+    private static final long CONNECT_TIMEOUT_MILLIS = 30_000;
+
+    private final Process process;
+    private final DataOutputStream toWorker;
+    private final DataInputStream fromWorker;
+    // Program whose classes the worker holds, later cases of the same submission only send their input
+    private CompiledJava loadedProgram;
+
+    JavaWorkerProcess(List<String> command, Path socketPath) throws IOException {
+        // The protocol gets its own socket, the worker's stdin and stdout go nowhere
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            List<String> workerCommand = new ArrayList<>(command);
+            workerCommand.add(socketPath.toString());
+            this.process = new ProcessBuilder(workerCommand)
+                    .redirectInput(ProcessBuilder.Redirect.from(new File("/dev/null")))
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            SocketChannel channel = accept(server);
+            this.toWorker = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            this.fromWorker = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        } finally {
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    private SocketChannel accept(ServerSocketChannel server) throws IOException {
+        server.configureBlocking(false);
+        try (Selector selector = Selector.open()) {
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            if (selector.select(CONNECT_TIMEOUT_MILLIS) == 0) {
+                process.destroyForcibly();
+                throw new IOException("Java worker did not connect within " + CONNECT_TIMEOUT_MILLIS + " ms");
+            }
+        }
+        SocketChannel channel = server.accept();
+        channel.configureBlocking(true);
+        return channel;
+    }
+
+    JavaWorkerResult execute(CompiledJava compiledJava, String className, String input, ExecutionLimits limits) throws IOException, LimitExceededException {
+        // The only way to stop a runaway main is to kill the whole worker JVM
+        try (ProcessWatchdog watchdog = ProcessWatchdog.watch(process, limits.getTimeLimitMillis())) {
+            try {
+                return exchange(compiledJava, className, input, limits.getOutputLimitBytes());
+            } catch (IOException e) {
+                if (watchdog.isExpired()) {
+                    throw LimitExceededException.time(limits.getTimeLimitMillis());
+                }
+                throw e;
+            }
+        }
+    }
+
+    boolean hasLoaded(CompiledJava compiledJava) {
+        return loadedProgram == compiledJava;
+    }
+
+    private JavaWorkerResult exchange(CompiledJava compiledJava, String className, String input, long outputLimitBytes) throws IOException {
+        if (hasLoaded(compiledJava)) {
+            toWorker.writeInt(JavaWorkerMain.SAME_PROGRAM);
+        } else {
+            loadedProgram = null;
+            toWorker.writeInt(compiledJava.getClasses().size());
+            for (Map.Entry<String, byte[]> entry : compiledJava.getClasses().entrySet()) {
+                JavaWorkerMain.writeString(toWorker, entry.getKey());
+                JavaWorkerMain.writeBytes(toWorker, entry.getValue());
+            }
+        }
+        JavaWorkerMain.writeString(toWorker, className);
+        JavaWorkerMain.writeBytes(toWorker, input.getBytes(StandardCharsets.UTF_8));
+        toWorker.writeLong(outputLimitBytes);
+        toWorker.flush();
+        loadedProgram = compiledJava;
+
+        int status = fromWorker.readInt();
+        long elapsedNanos = fromWorker.readLong();
+        String output = new String(JavaWorkerMain.readBytes(fromWorker), StandardCharsets.UTF_8);
+        String errorType = JavaWorkerMain.readString(fromWorker);
+        String errorMessage = JavaWorkerMain.readString(fromWorker);
+        boolean tainted = fromWorker.readBoolean();
+        return new JavaWorkerResult(status, output, elapsedNanos, errorType, errorMessage, tainted);
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    void destroy() {
+        process.destroyForcibly();
+    }
+}
@@ -0,0 +1,21 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * What a forked Java worker reports back for one run: a {@code JavaWorkerMain.STATUS_*} code,
+ * the captured stdout, the time spent inside {@code main}, the failure if there was one and whether the job
+ * left the worker unfit for reuse.
+ */
+@Getter
+@AllArgsConstructor
+public class JavaWorkerResult {
+    private final int status;
+    private final String output;
+    private final long elapsedNanos;
+    private final String errorType;
+    private final String errorMessage;
+    // The job left threads running, the worker must not be handed another job
+    private final boolean tainted;
+}
@@ -0,0 +1,22 @@
+package com.trainingmug.practiceplatform.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * Lets Hibernate send the code case reports of an attempt as JDBC batches instead of one insert
+ * per report. Values set in the application properties take precedence.
+ */
+@Configuration
+public class JpaBatchingConfig implements HibernatePropertiesCustomizer {
+    private static final int BATCH_SIZE = 50;
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.putIfAbsent("hibernate.jdbc.batch_size", BATCH_SIZE);
+        hibernateProperties.putIfAbsent("hibernate.order_inserts", true);
+        hibernateProperties.putIfAbsent("hibernate.order_updates", true);
+    }
+}
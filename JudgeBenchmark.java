@@ -0,0 +1,280 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JMH benchmarks of the judge's compile and run paths for every language, over small, medium and
+ * large programs and inputs. Lives in the JMH source set, not in the application.
+ * <ul>
+ *     <li>{@code compile} builds a source no cache has seen, {@code judgeCached} and {@code judgeUncached}
+ *     go through the whole judge with the compilation cache hit or missed.</li>
+ *     <li>{@code runCase} runs one case on warm pools, {@code runCaseConcurrent} does the same from
+ *     several threads at once.</li>
+ *     <li>{@code coldRun} starts fresh pools and times the first case only.</li>
+ * </ul>
+ * Results are written as JSON, e.g. {@code java -jar benchmarks.jar JudgeBenchmark -rf json -rff judge.json},
+ * or by running {@link #main}, so runs can be compared by a regression check.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JudgeBenchmark {
+    private static final ExecutionLimits LIMITS = new ExecutionLimits(10_000, 512, 64 * 1024 * 1024);
+    private static final AtomicLong UNIQUE_SOURCE = new AtomicLong();
+
+    @State(Scope.Benchmark)
+    public static class Judge {
+        @Param({"java", "python", "c", "cpp"})
+        public String language;
+
+        @Param({"small", "medium", "large"})
+        public String size;
+
+        StandaloneJudge standaloneJudge;
+        LanguageRunner runner;
+        SubmissionJudge submissionJudge;
+        Workspace workspace;
+        CompiledArtifact artifact;
+        String source;
+        String input;
+        List<CaseSnapshot> codeCases;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            standaloneJudge = new StandaloneJudge(Runtime.getRuntime().availableProcessors());
+            runner = standaloneJudge.runner(language);
+            submissionJudge = standaloneJudge.judge();
+            source = Programs.source(language, size);
+            input = Programs.input(size);
+            codeCases = Programs.codeCases(input, 4);
+            workspace = Workspace.create();
+            artifact = runner.compile(workspace, source);
+            if (artifact.getCompileError() != null) {
+                throw new IllegalStateException("Benchmark program does not compile: " + artifact.getCompileError());
+            }
+            runner.prepare(workspace, artifact);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            workspace.close();
+            submissionJudge.destroy();
+            standaloneJudge.destroy();
+        }
+
+        JudgeRequest request(String code) {
+            return JudgeRequest.builder()
+                    .codingExerciseId(1L)
+                    .language(language)
+                    .code(code)
+                    .codeCases(codeCases)
+                    .limits(LIMITS)
+                    .build();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ColdPools {
+        @Param({"java", "python", "c", "cpp"})
+        public String language;
+
+        StandaloneJudge standaloneJudge;
+        LanguageRunner runner;
+        Workspace workspace;
+        CompiledArtifact artifact;
+        String input;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws Exception {
+            standaloneJudge = new StandaloneJudge(1);
+            runner = standaloneJudge.runner(language);
+            input = Programs.input("small");
+            workspace = Workspace.create();
+            artifact = runner.compile(workspace, Programs.source(language, "small"));
+            runner.prepare(workspace, artifact);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws Exception {
+            workspace.close();
+            standaloneJudge.destroy();
+        }
+    }
+
+    @Benchmark
+    public CompiledArtifact compile(Judge judge) throws Exception {
+        try (Workspace workspace = Workspace.create()) {
+            return judge.runner.compile(workspace, Programs.unique(judge.language, judge.source));
+        }
+    }
+
+    @Benchmark
+    public JudgeResult judgeCached(Judge judge) throws Exception {
+        return judge.submissionJudge.judge(judge.request(judge.source));
+    }
+
+    @Benchmark
+    public JudgeResult judgeUncached(Judge judge) throws Exception {
+        return judge.submissionJudge.judge(judge.request(Programs.unique(judge.language, judge.source)));
+    }
+
+    @Benchmark
+    public String runCase(Judge judge) throws Exception {
+        return judge.runner.execute(judge.workspace, judge.artifact, judge.input, LIMITS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String runCaseConcurrent(Judge judge) throws Exception {
+        return judge.runner.execute(judge.workspace, judge.artifact, judge.input, LIMITS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public String coldRun(ColdPools cold) throws Exception {
+        return cold.runner.execute(cold.workspace, cold.artifact, cold.input, LIMITS);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JudgeBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result(args.length > 0 ? args[0] : "judge-benchmark.json")
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * The same program in every language: read {@code n} numbers, sort them and print a checksum.
+     * Larger sizes add unused helper functions for the compiler to chew on and feed more numbers.
+     */
+    static final class Programs {
+        private Programs() {
+        }
+
+        static String source(String language, String size) {
+            int helpers = size.equals("small") ? 0 : size.equals("medium") ? 50 : 500;
+            StringBuilder helperSource = new StringBuilder();
+            for (int i = 0; i < helpers; i++) {
+                helperSource.append(switch (language) {
+                    case "java" -> "    static int helper" + i + "(int x) { return x * " + i + " + 1; }\n";
+                    case "python" -> "def helper" + i + "(x):\n    return x * " + i + " + 1\n";
+                    default -> "static int helper" + i + "(int x) { return x * " + i + " + 1; }\n";
+                });
+            }
+            return switch (language) {
+                case "java" -> """
+                        import java.io.*;
+                        import java.util.*;
+
+                        public class Solution {
+                        %s
+                            public static void main(String[] args) throws IOException {
+                                StreamTokenizer in = new StreamTokenizer(new BufferedReader(new InputStreamReader(System.in)));
+                                in.nextToken();
+                                int n = (int) in.nval;
+                                int[] values = new int[n];
+                                for (int i = 0; i < n; i++) {
+                                    in.nextToken();
+                                    values[i] = (int) in.nval;
+                                }
+                                Arrays.sort(values);
+                                long checksum = 0;
+                                for (int value : values) {
+                                    checksum = checksum * 31 + value;
+                                }
+                                System.out.println(checksum);
+                            }
+                        }
+                        """.formatted(helperSource);
+                case "python" -> """
+                        import sys
+                        %s
+                        data = sys.stdin.read().split()
+                        values = sorted(int(x) for x in data[1:int(data[0]) + 1])
+                        checksum = 0
+                        for value in values:
+                            checksum = (checksum * 31 + value) %% (1 << 64)
+                        print(checksum)
+                        """.formatted(helperSource);
+                case "cpp" -> """
+                        #include <bits/stdc++.h>
+                        using namespace std;
+                        %s
+                        int main() {
+                            ios::sync_with_stdio(false);
+                            cin.tie(nullptr);
+                            int n;
+                            cin >> n;
+                            vector<int> values(n);
+                            for (int &value : values) cin >> value;
+                            sort(values.begin(), values.end());
+                            unsigned long long checksum = 0;
+                            for (int value : values) checksum = checksum * 31 + value;
+                            cout << checksum << endl;
+                        }
+                        """.formatted(helperSource);
+                default -> """
+                        #include <stdio.h>
+                        #include <stdlib.h>
+                        %s
+                        static int compare(const void *a, const void *b) {
+                            int x = *(const int *) a, y = *(const int *) b;
+                            return (x > y) - (x < y);
+                        }
+
+                        int main(void) {
+                            int n;
+                            if (scanf("%%d", &n) != 1) return 0;
+                            int *values = malloc(sizeof(int) * (n > 0 ? n : 1));
+                            for (int i = 0; i < n; i++) if (scanf("%%d", &values[i]) != 1) return 0;
+                            qsort(values, n, sizeof(int), compare);
+                            unsigned long long checksum = 0;
+                            for (int i = 0; i < n; i++) checksum = checksum * 31 + values[i];
+                            printf("%%llu\\n", checksum);
+                            free(values);
+                            return 0;
+                        }
+                        """.formatted(helperSource);
+            };
+        }
+
+        static String input(String size) {
+            int n = size.equals("small") ? 10 : size.equals("medium") ? 10_000 : 200_000;
+            Random random = new Random(n);
+            StringBuilder input = new StringBuilder().append(n).append('\n');
+            for (int i = 0; i < n; i++) {
+                input.append(random.nextInt(1_000_000)).append('\n');
+            }
+            return input.toString();
+        }
+
+        static List<CaseSnapshot> codeCases(String input, int count) {
+            List<CaseSnapshot> codeCases = new ArrayList<>(count);
+            for (long i = 1; i <= count; i++) {
+                codeCases.add(new CaseSnapshot(i, input, ""));
+            }
+            return codeCases;
+        }
+
+        // A trailing comment changes the cache key without changing the program
+        static String unique(String language, String source) {
+            return source + (language.equals("python") ? "# " : "// ") + UNIQUE_SOURCE.incrementAndGet() + "\n";
+        }
+    }
+}
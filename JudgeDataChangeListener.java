@@ -0,0 +1,83 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import com.trainingmug.practiceplatform.admin.entity.learningunit.CodeCaseEntity;
+import com.trainingmug.practiceplatform.admin.entity.learningunit.CodingExerciseEntity;
+import com.trainingmug.practiceplatform.admin.entity.learningunit.LanguageEntity;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes {@link CodingExerciseChangedEvent} and {@link LanguageChangedEvent} once a change to an
+ * exercise, a code case or a language has been committed, whichever admin flow saved it. Hooked
+ * into Hibernate, so no save path can forget to publish.
+ * <p>
+ * A code case does not know its exercise from here, so a case change drops every exercise. Events
+ * stay on this node, the caches' time to live bounds how stale other nodes can get.
+ */
+@Component
+@Slf4j
+public class JudgeDataChangeListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+    private final ApplicationEventPublisher eventPublisher;
+
+    public JudgeDataChangeListener(EntityManagerFactory entityManagerFactory, ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        changed(event.getEntity(), event.getId());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        changed(event.getEntity(), event.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        changed(event.getEntity(), event.getId());
+    }
+
+    // Nothing reached the database, the cached copies are still right
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> entityClass = persister.getMappedClass();
+        return CodingExerciseEntity.class.isAssignableFrom(entityClass)
+                || CodeCaseEntity.class.isAssignableFrom(entityClass)
+                || LanguageEntity.class.isAssignableFrom(entityClass);
+    }
+
+    private void changed(Object entity, Object id) {
+        if (entity instanceof CodingExerciseEntity) {
+            eventPublisher.publishEvent(new CodingExerciseChangedEvent((Long) id));
+        } else if (entity instanceof CodeCaseEntity) {
+            eventPublisher.publishEvent(CodingExerciseChangedEvent.allExercises());
+        } else if (entity instanceof LanguageEntity) {
+            eventPublisher.publishEvent(new LanguageChangedEvent((Long) id));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms and verdict counters of the judge, published through the application's
+ * {@link MeterRegistry} and scraped from {@code /actuator/prometheus} once the Prometheus registry
+ * is on the classpath and the endpoint is exposed.
+ * <p>
+ * Phases are timed separately so a slow contest can be traced to queueing, compiling, running or
+ * writing the attempt. Histograms have a fixed set of 14 buckets and never carry
+ * the exercise tag, per-exercise time is published on plain timers (count, total and max) instead,
+ * so a contest with many exercises doesn't multiply the histogram buckets.
+ */
+@Component
+public class JudgeMetrics {
+    // Fixed buckets instead of the ~70 of a percentile histogram, histogram_quantile still works on them
+    private static final Duration[] BUCKETS = {
+            Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(25), Duration.ofMillis(50),
+            Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500), Duration.ofSeconds(1),
+            Duration.ofMillis(2500), Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(30),
+            Duration.ofMinutes(1), Duration.ofMinutes(2)
+    };
+
+    private final MeterRegistry registry;
+
+    public JudgeMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordQueueWait(SubmissionLane lane, long nanos) {
+        histogram("coderunner.queue.wait", "Time a submission waited for a worker")
+                .tag("lane", lane.name().toLowerCase())
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCompile(String language, boolean cacheHit, boolean failed, long nanos) {
+        histogram("coderunner.compile", "Time to compile a submission or fetch it from the compilation cache")
+                .tag("language", language)
+                .tag("cache", cacheHit ? "hit" : "miss")
+                .tag("outcome", failed ? "error" : "success")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCaseRun(String language, Long codingExerciseId, Verdict verdict, long nanos) {
+        histogram("coderunner.case.run", "Time to run a submission against one case")
+                .tag("language", language)
+                .tag("verdict", verdict.name())
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        Timer.builder("coderunner.exercise.case.run")
+                .description("Time to run a submission against one case, per exercise")
+                .tag("exercise", String.valueOf(codingExerciseId))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void countVerdict(String language, Verdict verdict, boolean memoized) {
+        Counter.builder("coderunner.verdicts")
+                .description("Case verdicts, including results served from the result cache")
+                .tag("language", language)
+                .tag("verdict", verdict.name())
+                .tag("source", memoized ? "cache" : "run")
+                .register(registry)
+                .increment();
+    }
+
+    public void recordPersistence(String executionType, long nanos) {
+        histogram("coderunner.persist", "Time to record a judged attempt")
+                .tag("type", executionType)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSubmission(String language, Long codingExerciseId, String executionType, boolean failed, long nanos) {
+        histogram("coderunner.submission", "Time from accepting a submission to its recorded result")
+                .tag("language", language)
+                .tag("type", executionType)
+                .tag("outcome", failed ? "error" : "success")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        Timer.builder("coderunner.exercise.submission")
+                .description("Time from accepting a submission to its recorded result, per exercise")
+                .tag("exercise", String.valueOf(codingExerciseId))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer.Builder histogram(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .serviceLevelObjectives(BUCKETS);
+    }
+}
@@ -0,0 +1,28 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import com.trainingmug.practiceplatform.user.dto.learningunit.codingexercise.CodeCaseReportDTO;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Everything the judge needs to compile and run one submission. The code cases are snapshots,
+ * judge threads run outside the persistence context.
+ */
+@Getter
+@Builder
+public class JudgeRequest {
+    private final Long codingExerciseId;
+    private final String language;
+    private final String code;
+    private final List<CaseSnapshot> codeCases;
+    private final ExecutionLimits limits;
+    // Stop once fewer than this many cases can still pass, 0 runs every case
+    private final int requiredPasses;
+    // How outputs are matched, exact comparison when not set
+    private final OutputComparator outputComparator;
+    // Optional, told about every case as it finishes, from the case threads
+    private final Consumer<CodeCaseReportDTO> caseListener;
+}
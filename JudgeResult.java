@@ -0,0 +1,24 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import com.trainingmug.practiceplatform.user.dto.learningunit.codingexercise.CodeCaseReportDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of compiling and running one submission against a set of code cases.
+ */
+@Getter
+@AllArgsConstructor
+public class JudgeResult {
+    private final String compileError;
+    private final long compileTime;
+    private final long runTime;
+    private final List<CodeCaseReportDTO> codeCaseReports;
+    private final int casePassed;
+
+    public static JudgeResult compilationError(String compileError, long compileTime) {
+        return new JudgeResult(compileError, compileTime, 0, List.of(), 0);
+    }
+}
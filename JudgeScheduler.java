@@ -0,0 +1,218 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import com.trainingmug.practiceplatform.user.exception.SubmissionQueueFullException;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides which queued submission a free worker takes next. Lanes share the workers by smooth
+ * weighted round robin, boosted submissions go ahead of the rest of their lane, and a user who
+ * already has the maximum number of submissions running is skipped until one of them finishes.
+ * Within a lane users take turns: a user's n-th waiting submission only competes with the n-th
+ * submissions of others, so a backlog from one user does not hold everyone else up.
+ */
+class JudgeScheduler {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<SubmissionLane, Lane> lanes = new EnumMap<>(SubmissionLane.class);
+    private final Map<Long, Integer> runningPerUser = new HashMap<>();
+    private final Map<Long, Integer> queuedPerUser = new HashMap<>();
+    private final int capacity;
+    private final int maxRunningPerUser;
+    private final int maxQueuedPerUser;
+    private int queued;
+
+    JudgeScheduler(Map<SubmissionLane, Integer> weights, int capacity, int maxRunningPerUser, int maxQueuedPerUser) {
+        for (SubmissionLane lane : SubmissionLane.values()) {
+            lanes.put(lane, new Lane(Math.max(1, weights.getOrDefault(lane, 1))));
+        }
+        this.capacity = capacity;
+        this.maxRunningPerUser = maxRunningPerUser;
+        this.maxQueuedPerUser = maxQueuedPerUser;
+    }
+
+    void offer(ScheduledSubmission submission) throws SubmissionQueueFullException {
+        lock.lock();
+        try {
+            if (queued >= capacity) {
+                throw new SubmissionQueueFullException("Too many submissions are being judged right now, please try again shortly");
+            }
+            if (queuedPerUser.getOrDefault(submission.userId, 0) >= maxQueuedPerUser) {
+                throw new SubmissionQueueFullException("You already have " + maxQueuedPerUser + " submissions waiting, please wait for them to finish");
+            }
+            Lane lane = lanes.get(submission.lane);
+            if (submission.boosted) {
+                lane.boosted.addLast(submission);
+            } else {
+                submission.round = lane.normal.stream()
+                        .filter(waiting -> waiting.userId.equals(submission.userId))
+                        .mapToInt(waiting -> waiting.round + 1)
+                        .max()
+                        .orElse(0);
+                lane.normal.addLast(submission);
+            }
+            queued++;
+            queuedPerUser.merge(submission.userId, 1, Integer::sum);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until some user under the running cap has a submission queued, and hands it out.
+     */
+    ScheduledSubmission take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                ScheduledSubmission next = pickNext();
+                if (next != null) {
+                    queued--;
+                    queuedPerUser.computeIfPresent(next.userId, (userId, count) -> count > 1 ? count - 1 : null);
+                    runningPerUser.merge(next.userId, 1, Integer::sum);
+                    Lane lane = lanes.get(next.lane);
+                    long waitNanos = System.nanoTime() - next.enqueuedAt;
+                    lane.dispatched++;
+                    lane.totalWaitNanos += waitNanos;
+                    lane.maxWaitNanos = Math.max(lane.maxWaitNanos, waitNanos);
+                    return next;
+                }
+                changed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void finished(ScheduledSubmission submission) {
+        lock.lock();
+        try {
+            runningPerUser.computeIfPresent(submission.userId, (userId, count) -> count > 1 ? count - 1 : null);
+            // The user may have been holding back queued work, any worker may now find something
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int queueDepth(SubmissionLane lane) {
+        lock.lock();
+        try {
+            Lane state = lanes.get(lane);
+            return state.boosted.size() + state.normal.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    double averageWaitMillis(SubmissionLane lane) {
+        lock.lock();
+        try {
+            Lane state = lanes.get(lane);
+            return state.dispatched == 0 ? 0.0 : TimeUnit.NANOSECONDS.toMicros(state.totalWaitNanos / state.dispatched) / 1000.0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long maxWaitMillis(SubmissionLane lane) {
+        lock.lock();
+        try {
+            return TimeUnit.NANOSECONDS.toMillis(lanes.get(lane).maxWaitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ScheduledSubmission pickNext() {
+        // Smooth weighted round robin over the lanes that have something a worker may run right now
+        Lane chosen = null;
+        ScheduledSubmission chosenSubmission = null;
+        int totalWeight = 0;
+        for (Lane lane : lanes.values()) {
+            ScheduledSubmission candidate = lane.firstRunnable();
+            if (candidate == null) {
+                continue;
+            }
+            lane.credit += lane.weight;
+            totalWeight += lane.weight;
+            if (chosen == null || lane.credit > chosen.credit) {
+                chosen = lane;
+                chosenSubmission = candidate;
+            }
+        }
+        if (chosen == null) {
+            return null;
+        }
+        chosen.credit -= totalWeight;
+        chosen.boosted.remove(chosenSubmission);
+        chosen.normal.remove(chosenSubmission);
+        return chosenSubmission;
+    }
+
+    private boolean underRunningCap(Long userId) {
+        return runningPerUser.getOrDefault(userId, 0) < maxRunningPerUser;
+    }
+
+    private final class Lane {
+        private final int weight;
+        private final Deque<ScheduledSubmission> boosted = new ArrayDeque<>();
+        private final Deque<ScheduledSubmission> normal = new ArrayDeque<>();
+        private int credit;
+        private long dispatched;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        private Lane(int weight) {
+            this.weight = weight;
+        }
+
+        private ScheduledSubmission firstRunnable() {
+            for (ScheduledSubmission submission : boosted) {
+                if (underRunningCap(submission.userId)) {
+                    return submission;
+                }
+            }
+            // Earliest turn wins, ties go to whoever queued first
+            ScheduledSubmission first = null;
+            for (ScheduledSubmission submission : normal) {
+                if ((first == null || submission.round < first.round) && underRunningCap(submission.userId)) {
+                    first = submission;
+                }
+            }
+            return first;
+        }
+    }
+
+    static final class ScheduledSubmission {
+        private final Long userId;
+        private final SubmissionLane lane;
+        private final boolean boosted;
+        private final Runnable task;
+        private final long enqueuedAt = System.nanoTime();
+        private int round;
+
+        ScheduledSubmission(Long userId, SubmissionLane lane, boolean boosted, Runnable task) {
+            this.userId = userId;
+            this.lane = lane;
+            this.boosted = boosted;
+            this.task = task;
+        }
+
+        SubmissionLane getLane() {
+            return lane;
+        }
+
+        long getEnqueuedAt() {
+            return enqueuedAt;
+        }
+
+        void run() {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when an admin edits a language, so cached copies of it are dropped.
+ */
+@Getter
+@AllArgsConstructor
+public class LanguageChangedEvent {
+    private final Long languageId;
+}
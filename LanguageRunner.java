@@ -0,0 +1,55 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+/**
+ * How the judge builds and runs submissions of one language. The judge drives every runner
+ * through the same three phases: {@link #compile} the source (or take the artifact from the
+ * compilation cache), {@link #prepare} the submission's workspace once, then {@link #execute}
+ * the artifact for each case.
+ * <p>
+ * Runners are Spring beans picked up by {@link LanguageRunnerRegistry}, so a new runtime is a new
+ * bean and the grading code does not change.
+ */
+public interface LanguageRunner {
+
+    /**
+     * Name of the language as stored on {@code LanguageEntity}, matched ignoring case.
+     */
+    String getLanguage();
+
+    /**
+     * Part of the compilation cache key, a change of flags must not reuse old artifacts.
+     */
+    String getCompilerFlags();
+
+    /**
+     * Whether artifacts of this language may be kept in the {@link CompilationCache}.
+     */
+    default boolean isCacheable() {
+        return true;
+    }
+
+    /**
+     * Limits the cases of this language run with, starting from the exercise's limits.
+     */
+    default ExecutionLimits limits(ExecutionLimits exerciseLimits) {
+        return exerciseLimits;
+    }
+
+    /**
+     * Turns the source into an artifact, a compile error is returned as {@link CompiledArtifact#error}.
+     */
+    CompiledArtifact compile(Workspace workspace, String code) throws Exception;
+
+    /**
+     * Makes the artifact runnable from the workspace, called once before the first case.
+     */
+    default void prepare(Workspace workspace, CompiledArtifact artifact) throws Exception {
+    }
+
+    /**
+     * Runs the artifact against one input and returns what it printed. A crash of the program is
+     * thrown as {@link ProgramErrorException} and a limit as {@link LimitExceededException}, both are
+     * graded on the case. Any other exception means the judge itself failed.
+     */
+    String execute(Workspace workspace, CompiledArtifact artifact, String input, ExecutionLimits limits) throws Exception;
+}
@@ -0,0 +1,44 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Looks up the {@link LanguageRunner} of a {@code LanguageEntity} by its name, on every submission,
+ * so a renamed language row is judged by its new runner right away.
+ * <p>
+ * Names match case-insensitively. Any other name goes to the C runner, the way the judge has always
+ * treated languages it did not recognise, so existing rows like "c11" keep working.
+ */
+@Component
+@Slf4j
+public class LanguageRunnerRegistry {
+    private static final String FALLBACK_LANGUAGE = "c";
+    private static final Map<String, String> ALIASES = Map.of("c++", "cpp");
+
+    private final Map<String, LanguageRunner> runnersByName;
+
+    public LanguageRunnerRegistry(List<LanguageRunner> runners) {
+        this.runnersByName = runners.stream()
+                .collect(Collectors.toUnmodifiableMap(runner -> runner.getLanguage().toLowerCase(), Function.identity()));
+        log.info("Language runners registered for {}", runnersByName.keySet());
+    }
+
+    public LanguageRunner forLanguage(String languageName) {
+        String name = languageName.toLowerCase();
+        LanguageRunner runner = runnersByName.get(ALIASES.getOrDefault(name, name));
+        if (runner == null) {
+            runner = runnersByName.get(FALLBACK_LANGUAGE);
+            if (runner == null) {
+                throw new IllegalArgumentException("No runner registered for language: " + languageName);
+            }
+            log.debug("No runner registered for language {}, judging it as {}", languageName, FALLBACK_LANGUAGE);
+        }
+        return runner;
+    }
+}
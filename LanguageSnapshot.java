@@ -0,0 +1,20 @@
+package com.trainingmug.practiceplatform.user.service.impl.learningunit;
+
+import com.trainingmug.practiceplatform.admin.entity.learningunit.LanguageEntity;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Read-only copy of a language row, kept by {@link CodingExerciseCache} in place of the entity.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class LanguageSnapshot {
+    private final Long id;
+    private final String name;
+
+    public static LanguageSnapshot of(LanguageEntity languageEntity) {
+        return new LanguageSnapshot(languageEntity.getId(), languageEntity.getName());
+    }
+}
@@ -0,0 +1,29 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.Getter;
+
+/**
+ * Thrown by a runner when a code case was stopped for going past one of its {@link ExecutionLimits}.
+ * The verdict tells which limit it was.
+ */
+@Getter
+public class LimitExceededException extends Exception {
+    private final Verdict verdict;
+
+    private LimitExceededException(Verdict verdict, String message) {
+        super(message);
+        this.verdict = verdict;
+    }
+
+    public static LimitExceededException time(long timeLimitMillis) {
+        return new LimitExceededException(Verdict.TIME_LIMIT_EXCEEDED, "Time limit of " + timeLimitMillis + " ms exceeded");
+    }
+
+    public static LimitExceededException memory(long memoryLimitMb) {
+        return new LimitExceededException(Verdict.MEMORY_LIMIT_EXCEEDED, "Memory limit of " + memoryLimitMb + " MB exceeded");
+    }
+
+    public static LimitExceededException output(long outputLimitBytes) {
+        return new LimitExceededException(Verdict.OUTPUT_LIMIT_EXCEEDED, "Output limit of " + outputLimitBytes + " bytes exceeded");
+    }
+}
@@ -0,0 +1,262 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of long-lived supervisor processes that run native submissions. A supervisor forks and
+ * execs the binary for every case, applying the CPU and address-space limits in the child itself,
+ * so a case no longer pays for starting a JVM-side process and a shell to set its ulimits.
+ * The supervisor enforces the wall-clock and output limits too and kills the case's whole
+ * process group when one is hit.
+ */
+@Component
+@Slf4j
+public class NativeSupervisorPool implements DisposableBean {
+    // Headroom over the case's own time limit before the supervisor itself is considered stuck
+    private static final long SUPERVISOR_GRACE_MILLIS = 5_000;
+    // Reported instead of an exit code when the supervisor could not start the case at all
+    private static final int JOB_ERROR_EXIT_CODE = -1;
+
+    // Frames mirror JavaWorkerMain: big-endian ints and longs, byte arrays prefixed with their length.
+    private static final String SUPERVISOR_SCRIPT = """
+            import os
+            import resource
+            import select
+            import signal
+            import struct
+            import time
+
+            JOB_ERROR = -1
+
+            def _read_exact(stream, size):
+                data = stream.read(size)
+                if len(data) < size:
+                    raise EOFError()
+                return data
+
+            def _read_int(stream):
+                return struct.unpack(">i", _read_exact(stream, 4))[0]
+
+            def _read_long(stream):
+                return struct.unpack(">q", _read_exact(stream, 8))[0]
+
+            def _read_bytes(stream):
+                return _read_exact(stream, _read_int(stream))
+
+            def _write_bytes(stream, data):
+                stream.write(struct.pack(">i", len(data)))
+                stream.write(data)
+
+            def _exec_case(executable, directory, stdin, stdout, stderr, cpu_seconds, memory_bytes):
+                try:
+                    # Own process group, so a program that forks is killed as a whole
+                    os.setsid()
+                    os.chdir(directory)
+                    os.dup2(stdin, 0)
+                    os.dup2(stdout, 1)
+                    os.dup2(stderr, 2)
+                    resource.setrlimit(resource.RLIMIT_CPU, (cpu_seconds, cpu_seconds + 1))
+                    if memory_bytes > 0:
+                        resource.setrlimit(resource.RLIMIT_AS, (memory_bytes, memory_bytes))
+                    signal.signal(signal.SIGPIPE, signal.SIG_DFL)
+                    os.execv(executable, [executable])
+                finally:
+                    os._exit(127)
+
+            def _kill(pid):
+                try:
+                    os.killpg(pid, signal.SIGKILL)
+                except ProcessLookupError:
+                    pass
+
+            def _run(executable, directory, input_path, time_limit_ms, cpu_seconds, memory_bytes, output_limit):
+                # The case reads its input file directly, no bytes are copied through this process
+                in_read = os.open(input_path or os.devnull, os.O_RDONLY)
+                out_read, out_write = os.pipe()
+                err_read, err_write = os.pipe()
+                started = time.monotonic_ns()
+                pid = os.fork()
+                if pid == 0:
+                    _exec_case(executable, directory, in_read, out_write, err_write, cpu_seconds, memory_bytes)
+                os.close(in_read)
+                os.close(out_write)
+                os.close(err_write)
+
+                deadline = started + time_limit_ms * 1_000_000
+                captured = {out_read: bytearray(), err_read: bytearray()}
+                readers = [out_read, err_read]
+                timed_out = False
+                output_exceeded = False
+                while readers:
+                    remaining = (deadline - time.monotonic_ns()) / 1e9
+                    if remaining <= 0:
+                        timed_out = True
+                        _kill(pid)
+                        break
+                    readable, _, _ = select.select(readers, [], [], remaining)
+                    for fd in readable:
+                        chunk = os.read(fd, 65536)
+                        if not chunk:
+                            readers.remove(fd)
+                            continue
+                        captured[fd] += chunk
+                        if len(captured[fd]) > output_limit:
+                            output_exceeded = True
+                            _kill(pid)
+                            readers = []
+                            break
+                os.close(out_read)
+                os.close(err_read)
+                # A program may close its output and keep running, wait for it without reaping it yet
+                while not (timed_out or output_exceeded) and os.waitid(os.P_PID, pid, os.WEXITED | os.WNOHANG | os.WNOWAIT) is None:
+                    if time.monotonic_ns() >= deadline:
+                        timed_out = True
+                    else:
+                        time.sleep(0.0005)
+                elapsed = time.monotonic_ns() - started
+                # The unreaped leader keeps the group id reserved, so this also clears anything it left behind
+                _kill(pid)
+                _, status, usage = os.wait4(pid, 0)
+                term_signal = os.WTERMSIG(status) if os.WIFSIGNALED(status) else 0
+                exit_code = 128 + term_signal if term_signal else os.WEXITSTATUS(status)
+                # ru_maxrss is in kilobytes on Linux
+                peak_memory = usage.ru_maxrss * 1024
+                return exit_code, term_signal, peak_memory, elapsed, timed_out, output_exceeded, bytes(captured[out_read][:output_limit]), bytes(captured[err_read][:output_limit])
+
+            def main():
+                signal.signal(signal.SIGPIPE, signal.SIG_IGN)
+                protocol_in = os.fdopen(os.dup(0), "rb")
+                protocol_out = os.fdopen(os.dup(1), "wb")
+                devnull = os.open(os.devnull, os.O_RDWR)
+                os.dup2(devnull, 0)
+                os.dup2(devnull, 1)
+                while True:
+                    try:
+                        executable = _read_bytes(protocol_in).decode("utf-8")
+                        directory = _read_bytes(protocol_in).decode("utf-8")
+                        input_path = _read_bytes(protocol_in).decode("utf-8")
+                        time_limit_ms = _read_long(protocol_in)
+                        cpu_seconds = _read_long(protocol_in)
+                        memory_bytes = _read_long(protocol_in)
+                        output_limit = _read_long(protocol_in)
+                    except EOFError:
+                        return
+                    try:
+                        exit_code, term_signal, peak_memory, elapsed, timed_out, output_exceeded, stdout, stderr = _run(
+                            executable, directory, input_path, time_limit_ms, cpu_seconds, memory_bytes, output_limit)
+                    except OSError as error:
+                        # Only this case failed, report it and stay up for the next one
+                        exit_code, term_signal, peak_memory, elapsed, timed_out, output_exceeded, stdout, stderr = JOB_ERROR, 0, 0, 0, False, False, b"", str(error).encode("utf-8")
+                    protocol_out.write(struct.pack(">iiqq??", exit_code, term_signal, peak_memory, elapsed, timed_out, output_exceeded))
+                    _write_bytes(protocol_out, stdout)
+                    _write_bytes(protocol_out, stderr)
+                    protocol_out.flush()
+
+            main()
+            """;
+
+    private final BlockingQueue<NativeSupervisorProcess> idleSupervisors = new LinkedBlockingQueue<>();
+    private final List<NativeSupervisorProcess> allSupervisors = new CopyOnWriteArrayList<>();
+    private final AtomicLong exhaustedCount = new AtomicLong();
+    private final ExecutorService respawner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "native-supervisor-respawn");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Workspace supervisorDirectory;
+    private final List<String> command;
+    private final long acquireTimeoutMillis;
+
+    public NativeSupervisorPool(@Value("${coderunner.python-command:python3}") String pythonCommand,
+                                @Value("${coderunner.native-supervisors:0}") int poolSize,
+                                @Value("${coderunner.native-supervisor.acquire-timeout-ms:30000}") long acquireTimeoutMillis) throws IOException {
+        int supervisors = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.supervisorDirectory = Workspace.create();
+        Path script = supervisorDirectory.resolve("native_supervisor.py");
+        Files.writeString(script, SUPERVISOR_SCRIPT, StandardCharsets.UTF_8);
+        this.command = List.of(pythonCommand, "-I", script.toString());
+        for (int i = 0; i < supervisors; i++) {
+            idleSupervisors.offer(startSupervisor());
+        }
+        log.info("Native supervisor pool started with {} supervisors", supervisors);
+    }
+
+    /**
+     * Runs the executable once with stdin read from the given file and the given limits. Limit hits
+     * are reported through the result, like {@link ProcessRunner} does, along with the signal that
+     * ended the program and its peak memory.
+     */
+    public ProcessResult run(Path executable, Path directory, Path stdinFile, ExecutionLimits limits) throws Exception {
+        NativeSupervisorProcess supervisor = idleSupervisors.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        if (supervisor == null) {
+            exhaustedCount.incrementAndGet();
+            throw new Exception("No native supervisor available after " + acquireTimeoutMillis + " ms");
+        }
+        ProcessResult result;
+        try {
+            result = supervisor.run(executable, directory, stdinFile, limits, limits.getTimeLimitMillis() + SUPERVISOR_GRACE_MILLIS);
+        } catch (IOException e) {
+            replace(supervisor);
+            throw new IOException("Native supervisor failed: " + e.getMessage(), e);
+        }
+        if (supervisor.isAlive()) {
+            idleSupervisors.offer(supervisor);
+        } else {
+            replace(supervisor);
+        }
+        if (result.getExitCode() == JOB_ERROR_EXIT_CODE) {
+            throw new IOException("Native supervisor could not run the case: " + result.getStderr());
+        }
+        return result;
+    }
+
+    public int getSupervisorCount() {
+        return allSupervisors.size();
+    }
+
+    public int getIdleSupervisorCount() {
+        return idleSupervisors.size();
+    }
+
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+
+    private NativeSupervisorProcess startSupervisor() throws IOException {
+        NativeSupervisorProcess supervisor = new NativeSupervisorProcess(command);
+        allSupervisors.add(supervisor);
+        return supervisor;
+    }
+
+    private void replace(NativeSupervisorProcess supervisor) {
+        supervisor.destroy();
+        allSupervisors.remove(supervisor);
+        respawner.execute(() -> {
+            try {
+                idleSupervisors.offer(startSupervisor());
+            } catch (IOException e) {
+                log.error("Could not start replacement native supervisor: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        respawner.shutdownNow();
+        respawner.awaitTermination(SUPERVISOR_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        allSupervisors.forEach(NativeSupervisorProcess::destroy);
+        supervisorDirectory.close();
+    }
+}
@@ -0,0 +1,56 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Parent side of one native supervisor. Not thread-safe: {@link NativeSupervisorPool} hands a
+ * supervisor to a single caller at a time.
+ */
+class NativeSupervisorProcess {
+    private final Process process;
+    private final DataOutputStream toSupervisor;
+    private final DataInputStream fromSupervisor;
+
+    NativeSupervisorProcess(List<String> command) throws IOException {
+        this.process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        this.toSupervisor = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        this.fromSupervisor = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    }
+
+    ProcessResult run(Path executable, Path directory, Path stdinFile, ExecutionLimits limits, long supervisorTimeLimitMillis) throws IOException {
+        // The supervisor enforces the case's limits, this only catches a supervisor that stopped answering
+        try (ProcessWatchdog watchdog = ProcessWatchdog.watch(process, supervisorTimeLimitMillis)) {
+            JavaWorkerMain.writeString(toSupervisor, executable.toString());
+            JavaWorkerMain.writeString(toSupervisor, directory.toString());
+            JavaWorkerMain.writeString(toSupervisor, stdinFile.toString());
+            toSupervisor.writeLong(limits.getTimeLimitMillis());
+            toSupervisor.writeLong(limits.cpuLimitSeconds());
+            toSupervisor.writeLong(limits.getMemoryLimitMb() * 1024 * 1024);
+            toSupervisor.writeLong(limits.getOutputLimitBytes());
+            toSupervisor.flush();
+
+            int exitCode = fromSupervisor.readInt();
+            int termSignal = fromSupervisor.readInt();
+            long peakMemoryBytes = fromSupervisor.readLong();
+            long elapsedNanos = fromSupervisor.readLong();
+            boolean timedOut = fromSupervisor.readBoolean();
+            boolean outputLimitExceeded = fromSupervisor.readBoolean();
+            String stdout = new String(JavaWorkerMain.readBytes(fromSupervisor), StandardCharsets.UTF_8);
+            String stderr = new String(JavaWorkerMain.readBytes(fromSupervisor), StandardCharsets.UTF_8);
+            return new ProcessResult(exitCode, stdout, stderr, elapsedNanos / 1_000_000, timedOut, outputLimitExceeded, termSignal, peakMemoryBytes);
+        }
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    void destroy() {
+        process.destroyForcibly();
+    }
+}
@@ -0,0 +1,151 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decides whether a program's output matches a case's expected output. Both are scanned once,
+ * in place, and the scan stops at the first difference.
+ * <ul>
+ *     <li>{@link Mode#EXACT}: the output with surrounding whitespace trimmed must equal the expected output.</li>
+ *     <li>{@link Mode#TOKENS}: both are split on whitespace and must have the same tokens.</li>
+ *     <li>{@link Mode#FLOAT}: like {@code TOKENS}, but numbers match within an absolute or relative epsilon.</li>
+ * </ul>
+ * The report keeps a bounded window of the output around the first difference, so a case with a huge
+ * output does not end up in the response as a whole.
+ */
+@Getter
+public class OutputComparator {
+    public static final OutputComparator EXACT = new OutputComparator(Mode.EXACT, 0);
+
+    static final int REPORT_WINDOW_CHARS = 2048;
+    // In exact mode only trailing whitespace may follow the expected output, this much of it is plenty
+    static final long EXACT_OUTPUT_SLACK_BYTES = 64 * 1024;
+
+    public enum Mode {
+        EXACT, TOKENS, FLOAT
+    }
+
+    private final Mode mode;
+    private final double epsilon;
+
+    public OutputComparator(Mode mode, double epsilon) {
+        this.mode = mode;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Limits to run a case with. In exact mode the output limit is lowered to just past the expected
+     * output, so a program printing more than that is stopped as soon as it can no longer match.
+     */
+    public ExecutionLimits limitsFor(ExecutionLimits limits, String expected) {
+        if (mode != Mode.EXACT) {
+            return limits;
+        }
+        long cap = expected.getBytes(StandardCharsets.UTF_8).length + EXACT_OUTPUT_SLACK_BYTES;
+        return cap < limits.getOutputLimitBytes()
+                ? new ExecutionLimits(limits.getTimeLimitMillis(), limits.getMemoryLimitMb(), cap)
+                : limits;
+    }
+
+    public Comparison compare(String actual, String expected) {
+        int start = 0;
+        int end = actual.length();
+        while (start < end && actual.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && actual.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int mismatch = mode == Mode.EXACT ? firstDifference(actual, start, end, expected) : firstTokenDifference(actual, start, end, expected);
+        return new Comparison(mismatch < 0, reportWindow(actual, start, end, mismatch < 0 ? start : mismatch));
+    }
+
+    private static int firstDifference(String actual, int start, int end, String expected) {
+        int length = Math.min(end - start, expected.length());
+        for (int i = 0; i < length; i++) {
+            if (actual.charAt(start + i) != expected.charAt(i)) {
+                return start + i;
+            }
+        }
+        return end - start == expected.length() ? -1 : start + length;
+    }
+
+    // Returns the position in the output of the first token that differs, or -1 if every token matches
+    private int firstTokenDifference(String actual, int start, int end, String expected) {
+        int actualPosition = start;
+        int expectedPosition = 0;
+        while (true) {
+            actualPosition = skipWhitespace(actual, actualPosition, end);
+            expectedPosition = skipWhitespace(expected, expectedPosition, expected.length());
+            boolean actualDone = actualPosition == end;
+            boolean expectedDone = expectedPosition == expected.length();
+            if (actualDone || expectedDone) {
+                return actualDone && expectedDone ? -1 : actualPosition;
+            }
+            int actualTokenEnd = tokenEnd(actual, actualPosition, end);
+            int expectedTokenEnd = tokenEnd(expected, expectedPosition, expected.length());
+            if (!tokensMatch(actual, actualPosition, actualTokenEnd, expected, expectedPosition, expectedTokenEnd)) {
+                return actualPosition;
+            }
+            actualPosition = actualTokenEnd;
+            expectedPosition = expectedTokenEnd;
+        }
+    }
+
+    private boolean tokensMatch(String actual, int actualStart, int actualEnd, String expected, int expectedStart, int expectedEnd) {
+        int length = actualEnd - actualStart;
+        if (length == expectedEnd - expectedStart && actual.regionMatches(actualStart, expected, expectedStart, length)) {
+            return true;
+        }
+        if (mode != Mode.FLOAT) {
+            return false;
+        }
+        try {
+            double actualValue = Double.parseDouble(actual.substring(actualStart, actualEnd));
+            double expectedValue = Double.parseDouble(expected.substring(expectedStart, expectedEnd));
+            double difference = Math.abs(actualValue - expectedValue);
+            return difference <= epsilon || difference <= epsilon * Math.abs(expectedValue);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static int skipWhitespace(String text, int position, int end) {
+        while (position < end && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int tokenEnd(String text, int position, int end) {
+        while (position < end && !Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static String reportWindow(String actual, int start, int end, int focus) {
+        if (end - start <= REPORT_WINDOW_CHARS) {
+            return actual.substring(start, end);
+        }
+        int windowStart = Math.max(start, Math.min(focus - REPORT_WINDOW_CHARS / 2, end - REPORT_WINDOW_CHARS));
+        int windowEnd = windowStart + REPORT_WINDOW_CHARS;
+        return (windowStart > start ? "..." : "") + actual.substring(windowStart, windowEnd) + (windowEnd < end ? "..." : "");
+    }
+
+    /**
+     * Whether the output matched, and the part of it worth showing to the user.
+     */
+    @Getter
+    public static class Comparison {
+        private final boolean matched;
+        private final String reportedOutput;
+
+        Comparison(boolean matched, String reportedOutput) {
+            this.matched = matched;
+            this.reportedOutput = reportedOutput;
+        }
+    }
+}
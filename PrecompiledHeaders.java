@@ -0,0 +1,78 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precompiled headers of the native compiler profiles, built once at startup.
+ * <p>
+ * Each header is compiled to {@code <dir>/<header>.gch} and {@code <dir>} is put first on the
+ * include path. GCC looks for a {@code .gch} next to every header it searches for, so a submission
+ * whose first include is that header loads the precompiled state instead of parsing it, and every
+ * other submission compiles exactly as before.
+ */
+@Component
+@Slf4j
+public class PrecompiledHeaders implements DisposableBean {
+    private static final long BUILD_TIME_LIMIT_MILLIS = 120_000;
+    private static final long BUILD_OUTPUT_LIMIT_BYTES = 64 * 1024;
+
+    private final Workspace headerDirectory;
+    private final List<String> cIncludeFlags;
+    private final List<String> cppIncludeFlags;
+
+    public PrecompiledHeaders(CompilerProfileProperties compilerProfiles) throws IOException {
+        this.headerDirectory = Workspace.create();
+        this.cIncludeFlags = build("c", compilerProfiles.getC(), "c-header");
+        this.cppIncludeFlags = build("cpp", compilerProfiles.getCpp(), "c++-header");
+    }
+
+    public List<String> includeFlags(String language) {
+        return language.equals("c") ? cIncludeFlags : cppIncludeFlags;
+    }
+
+    private List<String> build(String language, CompilerProfileProperties.Profile profile, String headerType) {
+        if (!profile.hasPrecompiledHeader()) {
+            return List.of();
+        }
+        Path includeDirectory = headerDirectory.resolve(language);
+        try {
+            Path source = headerDirectory.resolve(language + "-header.h");
+            Files.writeString(source, "#include <" + profile.getPrecompiledHeader() + ">\n", StandardCharsets.UTF_8);
+            Path output = includeDirectory.resolve(profile.getPrecompiledHeader() + ".gch");
+            Files.createDirectories(output.getParent());
+
+            List<String> command = new ArrayList<>();
+            command.add(profile.getCommand());
+            command.addAll(profile.codeGenerationFlags());
+            command.addAll(List.of("-x", headerType, source.toString(), "-o", output.toString()));
+            ProcessResult result = ProcessRunner.run(command, headerDirectory.getDirectory(), new byte[0], BUILD_TIME_LIMIT_MILLIS, BUILD_OUTPUT_LIMIT_BYTES);
+            if (result.isTimedOut() || result.getExitCode() != 0) {
+                log.warn("Could not precompile {} for {}, compiling without it: {}", profile.getPrecompiledHeader(), language, result.getStderr().trim());
+                Files.deleteIfExists(output);
+                return List.of();
+            }
+            log.info("Precompiled {} for {} in {} ms", profile.getPrecompiledHeader(), language, result.getElapsedMillis());
+        } catch (IOException e) {
+            log.warn("Could not precompile {} for {}, compiling without it: {}", profile.getPrecompiledHeader(), language, e.getMessage());
+            return List.of();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        }
+        return List.of("-I", includeDirectory.toString());
+    }
+
+    @Override
+    public void destroy() {
+        headerDirectory.close();
+    }
+}
@@ -0,0 +1,27 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * How a child process ended: exit code, captured streams, wall time and whether it was stopped
+ * by one of its limits.
+ */
+@Getter
+@AllArgsConstructor
+public class ProcessResult {
+    private final int exitCode;
+    private final String stdout;
+    private final String stderr;
+    private final long elapsedMillis;
+    private final boolean timedOut;
+    private final boolean outputLimitExceeded;
+    // Signal that ended the process, 0 if it exited or the runner cannot tell
+    private final int termSignal;
+    // Peak resident memory, 0 if the runner does not measure it
+    private final long peakMemoryBytes;
+
+    public ProcessResult(int exitCode, String stdout, String stderr, long elapsedMillis, boolean timedOut, boolean outputLimitExceeded) {
+        this(exitCode, stdout, stderr, elapsedMillis, timedOut, outputLimitExceeded, 0, 0);
+    }
+}
@@ -0,0 +1,87 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a child process with stdin fed and stdout/stderr drained at the same time, so neither side
+ * ever blocks on a full pipe. Shared by the compile and run phases of the native languages.
+ */
+@Slf4j
+public final class ProcessRunner {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    // Three short-lived blocking tasks per process; Java 17 has no virtual threads, so use a cached pool
+    private static final ExecutorService IO_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "process-io-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ProcessRunner() {
+    }
+
+    public static ProcessResult run(List<String> command, Path directory, byte[] stdin, long timeLimitMillis, long outputLimitBytes) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .start();
+
+        CappedOutputCollector stdout = new CappedOutputCollector(outputLimitBytes);
+        CappedOutputCollector stderr = new CappedOutputCollector(outputLimitBytes);
+        try (ProcessWatchdog watchdog = ProcessWatchdog.watch(process, timeLimitMillis)) {
+            Future<?> writer = IO_EXECUTOR.submit(() -> feed(process.getOutputStream(), stdin));
+            Future<?> outReader = IO_EXECUTOR.submit(() -> drain(process, process.getInputStream(), stdout));
+            Future<?> errReader = IO_EXECUTOR.submit(() -> drain(process, process.getErrorStream(), stderr));
+            try {
+                outReader.get();
+                errReader.get();
+                writer.get();
+            } catch (ExecutionException e) {
+                ProcessWatchdog.killTree(process);
+                throw new IOException("Process I/O failed: " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                ProcessWatchdog.killTree(process);
+                throw e;
+            }
+            int exitCode = process.waitFor();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            return new ProcessResult(
+                    exitCode,
+                    stdout.getText(),
+                    stderr.getText(),
+                    elapsedMillis,
+                    watchdog.isExpired(),
+                    stdout.isExceeded() || stderr.isExceeded()
+            );
+        }
+    }
+
+    private static Void feed(OutputStream in, byte[] stdin) {
+        try (in) {
+            in.write(stdin);
+        } catch (IOException e) {
+            // The program exited or was killed without reading all of its input
+            log.debug("Stopped feeding stdin: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private static Void drain(Process process, InputStream stream, CappedOutputCollector collector) {
+        try {
+            if (!collector.collect(stream)) {
+                ProcessWatchdog.killTree(process);
+            }
+        } catch (IOException e) {
+            // Killing the process closes its pipes under the reader
+            log.debug("Stopped draining process output: {}", e.getMessage());
+        }
+        return null;
+    }
+}
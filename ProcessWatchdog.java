@@ -0,0 +1,50 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kills a process and everything it spawned once its wall-clock limit passes. Killing the process
+ * also closes its pipes, so a runner blocked reading its output is released.
+ */
+@Slf4j
+public class ProcessWatchdog implements AutoCloseable {
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "process-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ScheduledFuture<?> kill;
+    private volatile boolean expired;
+
+    private ProcessWatchdog(Process process, long timeLimitMillis) {
+        this.kill = TIMER.schedule(() -> {
+            expired = true;
+            log.info("Killing process {} after {} ms", process.pid(), timeLimitMillis);
+            killTree(process);
+        }, timeLimitMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static ProcessWatchdog watch(Process process, long timeLimitMillis) {
+        return new ProcessWatchdog(process, timeLimitMillis);
+    }
+
+    public static void killTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    public boolean isExpired() {
+        return expired;
+    }
+
+    @Override
+    public void close() {
+        kill.cancel(false);
+    }
+}
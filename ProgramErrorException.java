@@ -0,0 +1,11 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+/**
+ * Thrown by a runner when the submitted program itself failed on a code case, for example with an
+ * uncaught exception. The message is the error the program produced.
+ */
+public class ProgramErrorException extends Exception {
+    public ProgramErrorException(String message) {
+        super(message);
+    }
+}
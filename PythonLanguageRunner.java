@@ -0,0 +1,34 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Python is compiled to a marshalled code object once and run in the warm interpreters of
+ * {@link PythonWorkerPool}, nothing is written to the workspace.
+ */
+@Component
+@RequiredArgsConstructor
+public class PythonLanguageRunner implements LanguageRunner {
+    private final CodeRunService codeRunService;
+
+    @Override
+    public String getLanguage() {
+        return "python";
+    }
+
+    @Override
+    public String getCompilerFlags() {
+        return "";
+    }
+
+    @Override
+    public CompiledArtifact compile(Workspace workspace, String code) throws Exception {
+        return codeRunService.compilePythonCode(code);
+    }
+
+    @Override
+    public String execute(Workspace workspace, CompiledArtifact artifact, String input, ExecutionLimits limits) throws Exception {
+        return codeRunService.runPythonCode(artifact.getBinary(), input, limits);
+    }
+}
@@ -0,0 +1,336 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of long-lived CPython worker processes. A submission is compiled once into a marshalled
+ * code object, and every run loads that code object into a fresh globals dict with its own copy
+ * of the builtins, so no run pays for interpreter start-up or parsing. Modules a run imported are
+ * dropped afterwards, and a worker whose preloaded modules were patched is replaced. Dead workers
+ * are replaced in the background.
+ */
+@Component
+@Slf4j
+public class PythonWorkerPool implements DisposableBean {
+    private static final long COMPILE_TIME_LIMIT_MILLIS = 10_000;
+    private static final ExecutionLimits WARM_UP_LIMITS = new ExecutionLimits(30_000, 0, 1024 * 1024);
+
+    private static final String WARM_UP_CODE = """
+            n = int(input())
+            print(" ".join(str(i * 31 % 7) for i in range(n)))
+            """;
+
+    // Frames mirror JavaWorkerMain: big-endian ints and longs, byte arrays prefixed with their length.
+    // The protocol keeps private copies of fd 0 and 1 so a submission writing to them cannot corrupt it.
+    private static final String WORKER_SCRIPT = """
+            import builtins
+            import io
+            import marshal
+            import os
+            import resource
+            import struct
+            import sys
+            import textwrap
+            import time
+            import traceback
+
+            STATUS_OK = 0
+            STATUS_RUNTIME_ERROR = 1
+            STATUS_COMPILE_ERROR = 2
+            STATUS_INTERNAL_ERROR = 3
+            STATUS_OUTPUT_LIMIT = 4
+            STATUS_MEMORY_LIMIT = 5
+            OP_COMPILE = 0
+            OP_RUN = 1
+            # Imported up front so most submissions find them already loaded, and watched like the rest of the baseline
+            PRELOADED_MODULES = ("bisect", "collections", "functools", "heapq", "itertools", "math", "re", "string")
+            _MISSING = object()
+
+            class _OutputLimitExceeded(BaseException):
+                pass
+
+            class _CappedOutput(io.StringIO):
+                def __init__(self, limit):
+                    super().__init__()
+                    self._remaining = limit
+                    self.exceeded = False
+                def write(self, text):
+                    self._remaining -= len(text)
+                    if self._remaining < 0:
+                        self.exceeded = True
+                        raise _OutputLimitExceeded()
+                    return super().write(text)
+
+            def _read_exact(stream, size):
+                data = stream.read(size)
+                if len(data) < size:
+                    raise EOFError()
+                return data
+
+            def _read_int(stream):
+                return struct.unpack(">i", _read_exact(stream, 4))[0]
+
+            def _read_long(stream):
+                return struct.unpack(">q", _read_exact(stream, 8))[0]
+
+            def _read_bytes(stream):
+                return _read_exact(stream, _read_int(stream))
+
+            def _respond(stream, status, started, payload, error, tainted):
+                error = error.encode("utf-8", "replace")
+                stream.write(struct.pack(">iqi", status, time.monotonic_ns() - started, len(payload)))
+                stream.write(payload)
+                stream.write(struct.pack(">i", len(error)))
+                stream.write(error)
+                stream.write(struct.pack(">?", tainted))
+                stream.flush()
+
+            def _snapshot_modules():
+                return {name: (module, dict(module.__dict__))
+                        for name, module in sys.modules.items() if getattr(module, "__dict__", None) is not None}
+
+            def _reset_modules(baseline):
+                # Modules the job imported are dropped, the next job imports its own copies
+                for name in [name for name in sys.modules if name not in baseline]:
+                    del sys.modules[name]
+                # A rebound attribute of a module that stays loaded, builtins included, would leak into
+                # every later job, so the worker reports itself as tainted and gets replaced
+                for name, (module, attributes) in baseline.items():
+                    if sys.modules.get(name) is not module or len(module.__dict__) != len(attributes):
+                        return True
+                    current = module.__dict__
+                    for key, value in attributes.items():
+                        if current.get(key, _MISSING) is not value:
+                            return True
+                return False
+
+            def _compile(source):
+                try:
+                    code = compile(textwrap.dedent(source), "solution.py", "exec")
+                except (SyntaxError, ValueError) as e:
+                    return STATUS_COMPILE_ERROR, b"", "".join(traceback.format_exception_only(type(e), e))
+                return STATUS_OK, marshal.dumps(code), ""
+
+            def _address_space():
+                with open("/proc/self/statm") as statm:
+                    return int(statm.read().split()[0]) * resource.getpagesize()
+
+            def _run(bytecode, user_input, output_limit, memory_limit):
+                code = marshal.loads(bytecode)
+                stdout = _CappedOutput(output_limit)
+                stderr = _CappedOutput(output_limit)
+                sys.stdin = io.TextIOWrapper(io.BytesIO(user_input.encode("utf-8")), encoding="utf-8")
+                sys.stdout = stdout
+                sys.stderr = stderr
+                original_limit = resource.getrlimit(resource.RLIMIT_AS)
+                if memory_limit > 0:
+                    soft_limit = _address_space() + memory_limit
+                    if original_limit[1] != resource.RLIM_INFINITY:
+                        soft_limit = min(soft_limit, original_limit[1])
+                    resource.setrlimit(resource.RLIMIT_AS, (soft_limit, original_limit[1]))
+                try:
+                    # A private copy, so rebinding a builtin through __builtins__ stays inside this job
+                    exec(code, {"__name__": "__main__", "__builtins__": dict(builtins.__dict__)})
+                except SystemExit:
+                    pass
+                except _OutputLimitExceeded:
+                    return STATUS_OUTPUT_LIMIT, b"", ""
+                except MemoryError:
+                    return STATUS_MEMORY_LIMIT, b"", ""
+                except BaseException as e:
+                    if stdout.exceeded or stderr.exceeded:
+                        return STATUS_OUTPUT_LIMIT, b"", ""
+                    return STATUS_RUNTIME_ERROR, b"", "".join(traceback.format_exception(type(e), e, e.__traceback__.tb_next))
+                finally:
+                    resource.setrlimit(resource.RLIMIT_AS, original_limit)
+                    sys.stdin = sys.__stdin__
+                    sys.stdout = sys.__stdout__
+                    sys.stderr = sys.__stderr__
+                    sys.settrace(None)
+                    sys.setrecursionlimit(1000)
+                if stdout.exceeded or stderr.exceeded:
+                    return STATUS_OUTPUT_LIMIT, b"", ""
+                if stderr.getvalue():
+                    return STATUS_RUNTIME_ERROR, b"", stderr.getvalue()
+                return STATUS_OK, stdout.getvalue().encode("utf-8", "replace"), ""
+
+            def main():
+                protocol_in = os.fdopen(os.dup(0), "rb")
+                protocol_out = os.fdopen(os.dup(1), "wb")
+                devnull = os.open(os.devnull, os.O_RDWR)
+                os.dup2(devnull, 0)
+                os.dup2(devnull, 1)
+                for name in PRELOADED_MODULES:
+                    __import__(name)
+                # One run first, so whatever the run path loads lazily is part of the baseline
+                _run(marshal.dumps(compile("print(int(input()))", "warm_up.py", "exec")), "1\\n", 1024, 0)
+                baseline = _snapshot_modules()
+                while True:
+                    try:
+                        op = _read_int(protocol_in)
+                        if op == OP_COMPILE:
+                            source = _read_bytes(protocol_in).decode("utf-8")
+                        else:
+                            bytecode = _read_bytes(protocol_in)
+                            user_input = _read_bytes(protocol_in).decode("utf-8")
+                            output_limit = _read_long(protocol_in)
+                            memory_limit = _read_long(protocol_in)
+                    except EOFError:
+                        return
+                    started = time.monotonic_ns()
+                    tainted = False
+                    try:
+                        if op == OP_COMPILE:
+                            status, payload, error = _compile(source)
+                        else:
+                            status, payload, error = _run(bytecode, user_input, output_limit, memory_limit)
+                            tainted = _reset_modules(baseline)
+                    except BaseException as e:
+                        status, payload, error = STATUS_INTERNAL_ERROR, b"", repr(e)
+                    _respond(protocol_out, status, started, payload, error, tainted)
+
+            main()
+            """;
+
+    private final BlockingQueue<PythonWorkerProcess> idleWorkers = new LinkedBlockingQueue<>();
+    private final List<PythonWorkerProcess> allWorkers = new CopyOnWriteArrayList<>();
+    private final AtomicLong exhaustedCount = new AtomicLong();
+    private final ExecutorService respawner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "python-worker-respawn");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Workspace workerDirectory;
+    private final List<String> command;
+    private final long acquireTimeoutMillis;
+    private byte[] warmUpBytecode;
+
+    public PythonWorkerPool(@Value("${coderunner.python-command:python3}") String pythonCommand,
+                            @Value("${coderunner.python-workers:0}") int poolSize,
+                            @Value("${coderunner.python-worker.acquire-timeout-ms:30000}") long acquireTimeoutMillis) throws IOException {
+        int workers = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.workerDirectory = Workspace.create();
+        Path script = workerDirectory.resolve("python_worker.py");
+        Files.writeString(script, WORKER_SCRIPT, StandardCharsets.UTF_8);
+        // -I keeps the user's environment and site directories out of the workers
+        this.command = List.of(pythonCommand, "-I", script.toString());
+
+        List<PythonWorkerProcess> started = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            started.add(startWorker());
+        }
+        for (PythonWorkerProcess worker : started) {
+            warmUp(worker);
+            idleWorkers.offer(worker);
+        }
+        log.info("Python worker pool started with {} warm workers", workers);
+    }
+
+    public PythonWorkerResult compile(String source) throws Exception {
+        return execute(worker -> worker.compile(source, COMPILE_TIME_LIMIT_MILLIS));
+    }
+
+    public PythonWorkerResult run(byte[] bytecode, String input, ExecutionLimits limits) throws Exception {
+        return execute(worker -> worker.run(bytecode, input, limits));
+    }
+
+    private PythonWorkerResult execute(WorkerJob job) throws Exception {
+        PythonWorkerProcess worker = idleWorkers.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        if (worker == null) {
+            exhaustedCount.incrementAndGet();
+            throw new Exception("No Python worker available after " + acquireTimeoutMillis + " ms");
+        }
+        PythonWorkerResult result;
+        try {
+            result = job.run(worker);
+        } catch (LimitExceededException e) {
+            replace(worker);
+            throw e;
+        } catch (IOException e) {
+            replace(worker);
+            throw new Exception("Python worker crashed during execution: " + e.getMessage(), e);
+        }
+        // A worker that hit its memory limit or had a module patched may be left with bad state, start a clean one
+        if (result.getStatus() == PythonWorkerResult.STATUS_MEMORY_LIMIT
+                || result.getStatus() == PythonWorkerResult.STATUS_INTERNAL_ERROR
+                || result.isTainted()
+                || !worker.isAlive()) {
+            replace(worker);
+        } else {
+            idleWorkers.offer(worker);
+        }
+        return result;
+    }
+
+    public int getWorkerCount() {
+        return allWorkers.size();
+    }
+
+    public int getIdleWorkerCount() {
+        return idleWorkers.size();
+    }
+
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+
+    private PythonWorkerProcess startWorker() throws IOException {
+        PythonWorkerProcess worker = new PythonWorkerProcess(command);
+        allWorkers.add(worker);
+        return worker;
+    }
+
+    private void warmUp(PythonWorkerProcess worker) throws IOException {
+        try {
+            if (warmUpBytecode == null) {
+                warmUpBytecode = worker.compile(WARM_UP_CODE, WARM_UP_LIMITS.getTimeLimitMillis()).getPayload();
+            }
+            for (int i = 0; i < 3; i++) {
+                worker.run(warmUpBytecode, "1000\n", WARM_UP_LIMITS);
+            }
+        } catch (LimitExceededException e) {
+            throw new IOException("Python worker did not finish warming up", e);
+        }
+    }
+
+    private void replace(PythonWorkerProcess worker) {
+        worker.destroy();
+        allWorkers.remove(worker);
+        respawner.execute(() -> {
+            try {
+                PythonWorkerProcess replacement = startWorker();
+                warmUp(replacement);
+                idleWorkers.offer(replacement);
+            } catch (IOException e) {
+                log.error("Could not start replacement Python worker: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // Let an in-flight respawn finish before its script disappears
+        respawner.shutdownNow();
+        respawner.awaitTermination(WARM_UP_LIMITS.getTimeLimitMillis(), TimeUnit.MILLISECONDS);
+        allWorkers.forEach(PythonWorkerProcess::destroy);
+        workerDirectory.close();
+    }
+
+    @FunctionalInterface
+    private interface WorkerJob {
+        PythonWorkerResult run(PythonWorkerProcess worker) throws IOException, LimitExceededException;
+    }
+}
@@ -0,0 +1,79 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Parent side of one forked Python worker. Not thread-safe: {@link PythonWorkerPool} hands a worker
+ * to a single caller at a time.
+ */
+class PythonWorkerProcess {
+    static final int OP_COMPILE = 0;
+    static final int OP_RUN = 1;
+
+    private final Process process;
+    private final DataOutputStream toWorker;
+    private final DataInputStream fromWorker;
+
+    PythonWorkerProcess(List<String> command) throws IOException {
+        this.process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        this.toWorker = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        this.fromWorker = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    }
+
+    PythonWorkerResult compile(String source, long timeLimitMillis) throws IOException, LimitExceededException {
+        try (ProcessWatchdog watchdog = ProcessWatchdog.watch(process, timeLimitMillis)) {
+            try {
+                toWorker.writeInt(OP_COMPILE);
+                JavaWorkerMain.writeString(toWorker, source);
+                toWorker.flush();
+                return readResult();
+            } catch (IOException e) {
+                if (watchdog.isExpired()) {
+                    throw LimitExceededException.time(timeLimitMillis);
+                }
+                throw e;
+            }
+        }
+    }
+
+    PythonWorkerResult run(byte[] bytecode, String input, ExecutionLimits limits) throws IOException, LimitExceededException {
+        // The interpreter cannot interrupt itself reliably, a runaway program takes the worker down with it
+        try (ProcessWatchdog watchdog = ProcessWatchdog.watch(process, limits.getTimeLimitMillis())) {
+            try {
+                toWorker.writeInt(OP_RUN);
+                JavaWorkerMain.writeBytes(toWorker, bytecode);
+                JavaWorkerMain.writeString(toWorker, input);
+                toWorker.writeLong(limits.getOutputLimitBytes());
+                toWorker.writeLong(limits.getMemoryLimitMb() * 1024 * 1024);
+                toWorker.flush();
+                return readResult();
+            } catch (IOException e) {
+                if (watchdog.isExpired()) {
+                    throw LimitExceededException.time(limits.getTimeLimitMillis());
+                }
+                throw e;
+            }
+        }
+    }
+
+    private PythonWorkerResult readResult() throws IOException {
+        int status = fromWorker.readInt();
+        long elapsedNanos = fromWorker.readLong();
+        byte[] payload = JavaWorkerMain.readBytes(fromWorker);
+        String error = new String(JavaWorkerMain.readBytes(fromWorker), StandardCharsets.UTF_8);
+        boolean tainted = fromWorker.readBoolean();
+        return new PythonWorkerResult(status, payload, elapsedNanos, error, tainted);
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    void destroy() {
+        process.destroyForcibly();
+    }
+}
@@ -0,0 +1,32 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * What a forked Python worker reports back for one job: a {@code STATUS_*} code, the payload
+ * (marshalled bytecode for a compile, captured stdout for a run), the time spent and the error text.
+ */
+@Getter
+@AllArgsConstructor
+public class PythonWorkerResult {
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_RUNTIME_ERROR = 1;
+    public static final int STATUS_COMPILE_ERROR = 2;
+    public static final int STATUS_INTERNAL_ERROR = 3;
+    public static final int STATUS_OUTPUT_LIMIT = 4;
+    public static final int STATUS_MEMORY_LIMIT = 5;
+
+    private final int status;
+    private final byte[] payload;
+    private final long elapsedNanos;
+    private final String error;
+    // The run patched a module the worker keeps loaded, the worker must not be handed another job
+    private final boolean tainted;
+
+    public String getPayloadText() {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
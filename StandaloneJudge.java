@@ -0,0 +1,60 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The judge's beans wired by hand, for benchmarks and load tests that run without Spring.
+ * Every pool starts {@code workers} processes.
+ */
+final class StandaloneJudge {
+    private final JavaWorkerPool javaWorkerPool;
+    private final PythonWorkerPool pythonWorkerPool;
+    private final NativeSupervisorPool nativeSupervisorPool;
+    private final PrecompiledHeaders precompiledHeaders;
+    private final CaseInputStore caseInputStore;
+    private final CaseExecutionEngine caseExecutionEngine;
+    private final LanguageRunnerRegistry languageRunners;
+
+    StandaloneJudge(int workers) throws Exception {
+        CompilerProfileProperties compilerProfiles = new CompilerProfileProperties();
+        javaWorkerPool = new JavaWorkerPool(new ExecutionLimitProperties(), workers, 30_000);
+        pythonWorkerPool = new PythonWorkerPool("python3", workers, 30_000);
+        nativeSupervisorPool = new NativeSupervisorPool("python3", workers, 30_000);
+        precompiledHeaders = new PrecompiledHeaders(compilerProfiles);
+        caseInputStore = new CaseInputStore(256L * 1024 * 1024);
+        caseExecutionEngine = new CaseExecutionEngine(workers);
+        CodeRunService codeRunService = new CodeRunService(javaWorkerPool, pythonWorkerPool, compilerProfiles, precompiledHeaders,
+                nativeSupervisorPool, caseInputStore);
+        languageRunners = new LanguageRunnerRegistry(List.of(
+                new JavaLanguageRunner(codeRunService),
+                new PythonLanguageRunner(codeRunService),
+                new CLanguageRunner(codeRunService, compilerProfiles),
+                new CppLanguageRunner(codeRunService, compilerProfiles)
+        ));
+    }
+
+    LanguageRunner runner(String language) {
+        return languageRunners.forLanguage(language);
+    }
+
+    SubmissionJudge judge() {
+        return judge(4, 100);
+    }
+
+    SubmissionJudge judge(int threads, int queueCapacity) {
+        return new SubmissionJudge(languageRunners, caseExecutionEngine, new CompilationCache(256L * 1024 * 1024),
+                new CaseResultCache(Set.of(), 0), new JudgeMetrics(new SimpleMeterRegistry()), threads, queueCapacity);
+    }
+
+    void destroy() throws InterruptedException {
+        caseExecutionEngine.destroy();
+        javaWorkerPool.destroy();
+        pythonWorkerPool.destroy();
+        nativeSupervisorPool.destroy();
+        precompiledHeaders.destroy();
+        caseInputStore.destroy();
+    }
+}
@@ -0,0 +1,7 @@
+package com.trainingmug.practiceplatform.user.exception;
+
+public class SubmissionInProgressException extends Exception {
+    public SubmissionInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,121 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import com.trainingmug.practiceplatform.enums.SubmissionStatus;
+import com.trainingmug.practiceplatform.user.dto.learningunit.codingexercise.CodeCaseReportDTO;
+import com.trainingmug.practiceplatform.user.dto.learningunit.codingexercise.CodeExecutionStatus;
+import com.trainingmug.practiceplatform.user.dto.learningunit.codingexercise.SubmissionJobDTO;
+import lombok.Getter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One queued submission and everything known about it so far. Case reports arrive from the case
+ * threads while clients poll or stream, so all state changes go through the job's monitor.
+ */
+public class SubmissionJob {
+    @Getter
+    private final String id;
+    @Getter
+    private final Long userId;
+    private final List<CodeCaseReportDTO> codeCaseReports = new ArrayList<>();
+    private final List<SseEmitter> emitters = new ArrayList<>();
+    private SubmissionStatus status = SubmissionStatus.QUEUED;
+    private CodeExecutionStatus result;
+    private String error;
+    private Exception failure;
+    private Instant finishedAt;
+
+    SubmissionJob(String id, Long userId) {
+        this.id = id;
+        this.userId = userId;
+    }
+
+    synchronized void start() {
+        status = SubmissionStatus.RUNNING;
+        broadcast("status", toDTO());
+    }
+
+    synchronized void addCaseReport(CodeCaseReportDTO codeCaseReport) {
+        codeCaseReports.add(codeCaseReport);
+        broadcast("case", codeCaseReport);
+    }
+
+    synchronized void complete(CodeExecutionStatus result) {
+        this.result = result;
+        finish(SubmissionStatus.COMPLETED);
+    }
+
+    synchronized void fail(Exception failure) {
+        this.error = failure.getMessage();
+        this.failure = failure;
+        finish(SubmissionStatus.FAILED);
+    }
+
+    /**
+     * Blocks until the job has finished and returns its result, or throws what made it fail.
+     */
+    public synchronized CodeExecutionStatus await() throws Exception {
+        while (finishedAt == null) {
+            wait();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+
+    synchronized void attach(SseEmitter emitter) {
+        // A late subscriber first catches up on what it missed
+        try {
+            emitter.send(SseEmitter.event().name("status").data(toDTO()));
+            if (finishedAt != null) {
+                emitter.complete();
+                return;
+            }
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return;
+        }
+        emitter.onCompletion(() -> detach(emitter));
+        emitter.onTimeout(() -> detach(emitter));
+        emitters.add(emitter);
+    }
+
+    synchronized boolean isFinishedBefore(Instant cutoff) {
+        return finishedAt != null && finishedAt.isBefore(cutoff);
+    }
+
+    public synchronized SubmissionJobDTO toDTO() {
+        return new SubmissionJobDTO(id, status, List.copyOf(codeCaseReports), result, error);
+    }
+
+    private void finish(SubmissionStatus status) {
+        this.status = status;
+        this.finishedAt = Instant.now();
+        notifyAll();
+        broadcast("status", toDTO());
+        List<SseEmitter> subscribers = List.copyOf(emitters);
+        emitters.clear();
+        subscribers.forEach(SseEmitter::complete);
+    }
+
+    private synchronized void detach(SseEmitter emitter) {
+        emitters.remove(emitter);
+    }
+
+    private void broadcast(String event, Object data) {
+        emitters.removeIf(emitter -> {
+            try {
+                emitter.send(SseEmitter.event().name(event).data(data));
+                return false;
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+                return true;
+            }
+        });
+    }
+}
@@ -0,0 +1,20 @@
+package com.trainingmug.practiceplatform.user.dto.learningunit.codingexercise;
+
+import com.trainingmug.practiceplatform.enums.SubmissionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SubmissionJobDTO {
+    private String jobId;
+    private SubmissionStatus status;
+    // Reports of the cases finished so far, in completion order
+    private List<CodeCaseReportDTO> codeCaseReports;
+    private CodeExecutionStatus result;
+    private String error;
+}
@@ -0,0 +1,7 @@
+package com.trainingmug.practiceplatform.user.exception;
+
+public class SubmissionJobNotFoundException extends Exception {
+    public SubmissionJobNotFoundException(String message) {
+        super(message);
+    }
+}
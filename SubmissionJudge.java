@@ -0,0 +1,220 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import com.trainingmug.practiceplatform.user.dto.learningunit.codingexercise.CodeCaseReportDTO;
+import com.trainingmug.practiceplatform.user.exception.SubmissionQueueFullException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles and runs submissions on a bounded pool of judge threads. Each submission gets its
+ * own {@link Workspace}, so any number of users can be judged at the same time.
+ */
+@Service
+@Slf4j
+public class SubmissionJudge implements DisposableBean {
+    private final ThreadPoolExecutor executor;
+    private final LanguageRunnerRegistry languageRunners;
+    private final CaseExecutionEngine caseExecutionEngine;
+    private final CompilationCache compilationCache;
+    private final CaseResultCache caseResultCache;
+    private final JudgeMetrics judgeMetrics;
+
+    public SubmissionJudge(LanguageRunnerRegistry languageRunners,
+                           CaseExecutionEngine caseExecutionEngine,
+                           CompilationCache compilationCache,
+                           CaseResultCache caseResultCache,
+                           JudgeMetrics judgeMetrics,
+                           @Value("${coderunner.pool-size:0}") int poolSize,
+                           @Value("${coderunner.queue-capacity:100}") int queueCapacity) {
+        this.languageRunners = languageRunners;
+        this.caseExecutionEngine = caseExecutionEngine;
+        this.compilationCache = compilationCache;
+        this.caseResultCache = caseResultCache;
+        this.judgeMetrics = judgeMetrics;
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "code-run-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        log.info("Submission judge started with {} threads and queue capacity {}", threads, queueCapacity);
+    }
+
+    /**
+     * Compiles the code and runs it against the request's cases, blocking until the result is ready.
+     * Turns the request away with {@link SubmissionQueueFullException} when every judge thread is
+     * busy and the queue is full.
+     */
+    public JudgeResult judge(JudgeRequest request) throws Exception {
+        Future<JudgeResult> future;
+        try {
+            future = executor.submit(() -> judgeInWorkspace(request));
+        } catch (RejectedExecutionException e) {
+            throw new SubmissionQueueFullException("Too many submissions are being judged right now, please try again shortly");
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    private JudgeResult judgeInWorkspace(JudgeRequest request) throws Exception {
+        LanguageRunner runner = languageRunners.forLanguage(request.getLanguage());
+        ExecutionLimits limits = runner.limits(request.getLimits());
+        OutputComparator outputComparator = request.getOutputComparator() != null ? request.getOutputComparator() : OutputComparator.EXACT;
+        try (Workspace workspace = Workspace.create()) {
+            long compileTimeStart = System.currentTimeMillis();
+            String artifactKey = CompilationCache.key(runner.getLanguage(), runner.getCompilerFlags(), request.getCode());
+            CompiledArtifact artifact = compile(runner, request.getCode(), artifactKey, workspace);
+            String errMessage = artifact.getCompileError();
+            long compileTime = System.currentTimeMillis() - compileTimeStart;
+            log.info("Error massage : {}", errMessage);
+            if (errMessage != null) {
+                return JudgeResult.compilationError(errMessage, compileTime);
+            }
+
+            log.info("No error");
+            runner.prepare(workspace, artifact);
+            Long codingExerciseId = request.getCodingExerciseId();
+            boolean memoized = caseResultCache.isEnabled(codingExerciseId);
+            long runTimeStart = System.currentTimeMillis();
+            List<CaseResult> caseResults = caseExecutionEngine.runAll(
+                    request.getCodeCases(),
+                    codeCase -> {
+                        Optional<CaseResult> cached = memoized
+                                ? caseResultCache.get(codingExerciseId, artifactKey, codeCase, limits)
+                                : Optional.empty();
+                        CaseResult caseResult = cached.isPresent() ? cached.get() : runCase(runner, artifact, workspace, codeCase, limits, outputComparator, codingExerciseId);
+                        judgeMetrics.countVerdict(runner.getLanguage(), caseResult.getVerdict(), cached.isPresent());
+                        if (memoized && cached.isEmpty()) {
+                            caseResultCache.put(codingExerciseId, artifactKey, codeCase, limits, caseResult);
+                        }
+                        if (request.getCaseListener() != null) {
+                            request.getCaseListener().accept(caseResult.getReport());
+                        }
+                        return caseResult;
+                    },
+                    request.getRequiredPasses()
+            );
+            long runTime = System.currentTimeMillis() - runTimeStart;
+            List<CaseSnapshot> codeCases = request.getCodeCases();
+            List<CodeCaseReportDTO> codeCaseReportDTOS = new ArrayList<>(codeCases.size());
+            for (int i = 0; i < codeCases.size(); i++) {
+                CaseResult caseResult = caseResults.get(i);
+                codeCaseReportDTOS.add(caseResult != null ? caseResult.getReport() : skippedReport(codeCases.get(i)));
+            }
+            int casePassed = (int) caseResults.stream().filter(caseResult -> caseResult != null && caseResult.isPassed()).count();
+            return new JudgeResult(null, compileTime, runTime, codeCaseReportDTOS, casePassed);
+        }
+    }
+
+    private CompiledArtifact compile(LanguageRunner runner, String code, String cacheKey, Workspace workspace) throws Exception {
+        long start = System.nanoTime();
+        if (runner.isCacheable()) {
+            Optional<CompiledArtifact> cached = compilationCache.get(cacheKey);
+            if (cached.isPresent()) {
+                log.info("Compilation cache hit for {}", runner.getLanguage());
+                judgeMetrics.recordCompile(runner.getLanguage(), true, cached.get().getCompileError() != null, System.nanoTime() - start);
+                return cached.get();
+            }
+        }
+
+        CompiledArtifact artifact;
+        try {
+            artifact = runner.compile(workspace, code);
+        } catch (CompilerUnavailableException e) {
+            // Reported like a compile error but not cached, the next try may well compile
+            judgeMetrics.recordCompile(runner.getLanguage(), false, true, System.nanoTime() - start);
+            return CompiledArtifact.error(e.getMessage());
+        }
+        judgeMetrics.recordCompile(runner.getLanguage(), false, artifact.getCompileError() != null, System.nanoTime() - start);
+        if (runner.isCacheable()) {
+            compilationCache.put(cacheKey, artifact);
+        }
+        return artifact;
+    }
+
+    private CaseResult runCase(LanguageRunner runner, CompiledArtifact artifact, Workspace workspace, CaseSnapshot codeCase,
+                               ExecutionLimits limits, OutputComparator outputComparator, Long codingExerciseId) throws Exception {
+        String userCodeOutput;
+        Verdict verdict;
+        ExecutionLimits caseLimits = outputComparator.limitsFor(limits, codeCase.getOutput());
+        long start = System.nanoTime();
+        try {
+            OutputComparator.Comparison comparison = outputComparator.compare(
+                    runner.execute(workspace, artifact, codeCase.getInput(), caseLimits), codeCase.getOutput());
+            userCodeOutput = comparison.getReportedOutput();
+            verdict = comparison.isMatched() ? Verdict.ACCEPTED : Verdict.WRONG_ANSWER;
+        } catch (LimitExceededException e) {
+            if (e.getVerdict() == Verdict.OUTPUT_LIMIT_EXCEEDED && caseLimits.getOutputLimitBytes() < limits.getOutputLimitBytes()) {
+                // Stopped early by the comparator's cap, not by the exercise's output limit
+                verdict = Verdict.WRONG_ANSWER;
+                userCodeOutput = "Output is longer than the expected output";
+            } else {
+                log.info("Code case {} stopped: {}", codeCase.getId(), e.getMessage());
+                verdict = e.getVerdict();
+                userCodeOutput = verdict.getMessage();
+            }
+        } catch (ProgramErrorException e) {
+            verdict = Verdict.RUNTIME_ERROR;
+            userCodeOutput = e.getMessage();
+        }
+        judgeMetrics.recordCaseRun(runner.getLanguage(), codingExerciseId, verdict, System.nanoTime() - start);
+        log.info("userCodeOutput : {} and expected output {} ", userCodeOutput, codeCase.getOutput());
+
+        return new CaseResult(new CodeCaseReportDTO(
+                codeCase.getId(),
+                codeCase.getInput(),
+                codeCase.getOutput(),
+                userCodeOutput,
+                verdict == Verdict.ACCEPTED
+        ), verdict);
+    }
+
+    private static CodeCaseReportDTO skippedReport(CaseSnapshot codeCase) {
+        return new CodeCaseReportDTO(
+                codeCase.getId(),
+                codeCase.getInput(),
+                codeCase.getOutput(),
+                Verdict.SKIPPED.getMessage(),
+                false
+        );
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
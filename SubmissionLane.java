@@ -0,0 +1,10 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+/**
+ * Which scheduler queue a submission waits in. Graded submits and practice runs are queued
+ * apart so a burst of one cannot starve the other.
+ */
+public enum SubmissionLane {
+    GRADED,
+    PRACTICE
+}
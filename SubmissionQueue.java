@@ -0,0 +1,156 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import com.trainingmug.practiceplatform.user.dto.learningunit.codingexercise.CodeCaseReportDTO;
+import com.trainingmug.practiceplatform.user.dto.learningunit.codingexercise.CodeExecutionStatus;
+import com.trainingmug.practiceplatform.user.exception.SubmissionQueueFullException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs submissions in the background so request threads only validate and enqueue. Waiting jobs
+ * are ordered by a {@link JudgeScheduler}, which favours graded submits and keeps any single user
+ * from hogging the workers. The queue is bounded: once it is full new submissions are turned away
+ * instead of piling up. Finished jobs stay around for polling until the retention period runs out.
+ */
+@Component
+@Slf4j
+public class SubmissionQueue implements DisposableBean {
+    private final JudgeScheduler scheduler;
+    private final JudgeMetrics judgeMetrics;
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private final AtomicInteger runningCount = new AtomicInteger();
+    private final Map<String, SubmissionJob> jobs = new ConcurrentHashMap<>();
+    private final Duration retention;
+    private final long streamTimeoutMillis;
+
+    public SubmissionQueue(JudgeMetrics judgeMetrics,
+                           @Value("${coderunner.submission-queue.workers:0}") int workers,
+                           @Value("${coderunner.submission-queue.capacity:500}") int capacity,
+                           @Value("${coderunner.submission-queue.retention-minutes:30}") long retentionMinutes,
+                           @Value("${coderunner.submission-queue.stream-timeout-ms:300000}") long streamTimeoutMillis,
+                           @Value("${coderunner.scheduler.graded-weight:3}") int gradedWeight,
+                           @Value("${coderunner.scheduler.practice-weight:1}") int practiceWeight,
+                           @Value("${coderunner.scheduler.max-running-per-user:1}") int maxRunningPerUser,
+                           @Value("${coderunner.scheduler.max-queued-per-user:5}") int maxQueuedPerUser) {
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.judgeMetrics = judgeMetrics;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.streamTimeoutMillis = streamTimeoutMillis;
+        this.scheduler = new JudgeScheduler(
+                Map.of(SubmissionLane.GRADED, gradedWeight, SubmissionLane.PRACTICE, practiceWeight),
+                capacity,
+                maxRunningPerUser,
+                maxQueuedPerUser
+        );
+        for (int i = 1; i <= threads; i++) {
+            Thread thread = new Thread(this::work, "submission-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workerThreads.add(thread);
+        }
+        log.info("Submission queue started with {} workers and capacity {}, graded:practice weight {}:{}",
+                threads, capacity, gradedWeight, practiceWeight);
+    }
+
+    /**
+     * Queues the task and returns its job right away. The task runs with the caller's security context.
+     * A boosted task goes ahead of everything else waiting in its lane.
+     */
+    public SubmissionJob submit(Long userId, SubmissionLane lane, boolean boosted, SubmissionTask task) throws SubmissionQueueFullException {
+        purgeExpiredJobs();
+        SubmissionJob job = new SubmissionJob(UUID.randomUUID().toString(), userId);
+        jobs.put(job.getId(), job);
+        try {
+            scheduler.offer(new JudgeScheduler.ScheduledSubmission(userId, lane, boosted,
+                    new DelegatingSecurityContextRunnable(() -> run(job, task))));
+        } catch (SubmissionQueueFullException e) {
+            jobs.remove(job.getId());
+            log.warn("Rejected {} submission of user {}: {}", lane, userId, e.getMessage());
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<SubmissionJob> find(String jobId, Long userId) {
+        return Optional.ofNullable(jobs.get(jobId)).filter(job -> job.getUserId().equals(userId));
+    }
+
+    public SseEmitter stream(SubmissionJob job) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        job.attach(emitter);
+        return emitter;
+    }
+
+    public int getQueueDepth(SubmissionLane lane) {
+        return scheduler.queueDepth(lane);
+    }
+
+    public double getAverageWaitMillis(SubmissionLane lane) {
+        return scheduler.averageWaitMillis(lane);
+    }
+
+    public long getMaxWaitMillis(SubmissionLane lane) {
+        return scheduler.maxWaitMillis(lane);
+    }
+
+    public int getRunningCount() {
+        return runningCount.get();
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            JudgeScheduler.ScheduledSubmission submission;
+            try {
+                submission = scheduler.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            judgeMetrics.recordQueueWait(submission.getLane(), System.nanoTime() - submission.getEnqueuedAt());
+            runningCount.incrementAndGet();
+            try {
+                submission.run();
+            } catch (RuntimeException e) {
+                log.error("Submission worker hit an unexpected error: {}", e.getMessage(), e);
+            } finally {
+                runningCount.decrementAndGet();
+                scheduler.finished(submission);
+            }
+        }
+    }
+
+    private void run(SubmissionJob job, SubmissionTask task) {
+        job.start();
+        try {
+            job.complete(task.run(job::addCaseReport));
+        } catch (Exception e) {
+            log.error("Submission job {} failed: {}", job.getId(), e.getMessage(), e);
+            job.fail(e);
+        }
+    }
+
+    private void purgeExpiredJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinishedBefore(cutoff));
+    }
+
+    @Override
+    public void destroy() {
+        workerThreads.forEach(Thread::interrupt);
+    }
+
+    @FunctionalInterface
+    public interface SubmissionTask {
+        CodeExecutionStatus run(Consumer<CodeCaseReportDTO> caseListener) throws Exception;
+    }
+}
@@ -0,0 +1,7 @@
+package com.trainingmug.practiceplatform.user.exception;
+
+public class SubmissionQueueFullException extends Exception {
+    public SubmissionQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.trainingmug.practiceplatform.enums;
+
+public enum SubmissionStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,23 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Outcome of running one code case. The message is what the user sees in place of the program
+ * output when the run did not finish normally.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum Verdict {
+    ACCEPTED(null),
+    WRONG_ANSWER(null),
+    TIME_LIMIT_EXCEEDED("Time Limit Exceeded"),
+    MEMORY_LIMIT_EXCEEDED("Memory Limit Exceeded"),
+    OUTPUT_LIMIT_EXCEEDED("Output Limit Exceeded"),
+    RUNTIME_ERROR("Runtime Error"),
+    // Not run, the outcome of the submission was already decided
+    SKIPPED("Skipped");
+
+    private final String message;
+}
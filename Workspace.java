@@ -0,0 +1,49 @@
+package com.trainingmug.practiceplatform.user.util.coderunner;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Private scratch directory for a single submission. Sources and binaries of concurrent
+ * submissions never share a path, and closing the workspace removes everything it produced.
+ */
+@Slf4j
+public class Workspace implements AutoCloseable {
+    private final Path directory;
+
+    private Workspace(Path directory) {
+        this.directory = directory;
+    }
+
+    public static Workspace create() throws IOException {
+        return new Workspace(Files.createTempDirectory("coderunner-"));
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Path resolve(String fileName) {
+        return directory.resolve(fileName);
+    }
+
+    public void writeExecutable(String fileName, byte[] content) throws IOException {
+        Path path = resolve(fileName);
+        Files.write(path, content);
+        path.toFile().setExecutable(true);
+    }
+
+    @Override
+    public void close() {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Could not clean up workspace {}: {}", directory, e.getMessage());
+        }
+    }
+}